@@ -0,0 +1,122 @@
+package de.tuebingen.sfs.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaReader;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaWriter;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+
+// the input data of a benchmark: either the bundled Francois (2008) data set
+// (benchmarks have to be started from the repository root), or synthetic data
+// sampled from a random ground truth map as specified by the remaining parameters
+@State(Scope.Benchmark)
+public class BenchmarkData {
+
+	public static final String BREATHING_FILE = "examples/data/breathing/francois2008-isolectic-areas.tsv";
+
+	@Param({ "breathing", "synthetic" })
+	public String dataset;
+
+	@Param({ "1000" })
+	public int numLanguages;
+
+	@Param({ "200" })
+	public int numConcepts;
+
+	// links of the ground truth map beyond a spanning tree
+	@Param({ "100" })
+	public int numExtraLinks;
+
+	@Param({ "2.0" })
+	public double meanAreaSize;
+
+	@Param({ "8" })
+	public int maxAreaSize;
+
+	@Param({ "0.1" })
+	public double gapRate;
+
+	@Param({ "0.05" })
+	public double noiseRate;
+
+	public String inputFile;
+	public Set<IsolecticArea> isolecticAreas;
+	public IsolecticAreaIndex index;
+	// all concepts, in decreasing order of the number of isolectic areas they occur in
+	public String[] conceptsByFrequency;
+
+	private File syntheticFile;
+	private PrintStream console;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		// the pipeline reports its progress on standard output, which should not be measured
+		console = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+
+		if (dataset.equals("breathing")) {
+			inputFile = BREATHING_FILE;
+		} else {
+			syntheticFile = File.createTempFile("synthetic-isolectic-areas", ".tsv");
+			SplittableRandom random = new SplittableRandom(42L);
+			IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(numConcepts, numExtraLinks, random);
+			generator.setAreaSizes(meanAreaSize, maxAreaSize);
+			generator.setGapRate(gapRate);
+			generator.setNoiseRate(noiseRate);
+			IsolecticAreaWriter.writeToFile(generator.generate(numLanguages, random), syntheticFile.getPath());
+			inputFile = syntheticFile.getPath();
+		}
+		isolecticAreas = IsolecticAreaReader.loadFromFile(inputFile);
+		index = IsolecticAreaReader.loadIndexFromFile(inputFile, null, null);
+
+		Map<String, Integer> conceptCounts = IsolecticAreaProcessing.countConcepts(index);
+		Set<String> concepts = new TreeSet<String>((c1, c2) -> {
+			int comparison = Integer.compare(conceptCounts.get(c2), conceptCounts.get(c1));
+			return comparison != 0 ? comparison : c1.compareTo(c2);
+		});
+		concepts.addAll(conceptCounts.keySet());
+		conceptsByFrequency = concepts.toArray(new String[concepts.size()]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(console);
+		if (syntheticFile != null) {
+			syntheticFile.delete();
+		}
+	}
+
+	// the n most frequent concepts (in alphabetical order, as in the command line tool)
+	public String[] selectConcepts(int n) {
+		Set<String> selection = new TreeSet<String>();
+		for (int i = 0; i < Math.min(n, conceptsByFrequency.length); i++) {
+			selection.add(conceptsByFrequency[i]);
+		}
+		return selection.toArray(new String[selection.size()]);
+	}
+}
@@ -0,0 +1,98 @@
+package de.tuebingen.sfs.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tuebingen.sfs.SemanticMapInference;
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.causal.data.CausalGraphSummary;
+import de.tuebingen.sfs.inference.InitialGraphTemplate;
+import de.tuebingen.sfs.inference.SampleExecutor;
+import de.tuebingen.sfs.inference.SampleRandom;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+import de.tuebingen.sfs.util.struct.Triple;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class InferenceBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class InferenceInput {
+
+		// the number of (most frequent) concepts which are used as variables
+		@Param({ "20" })
+		public int numSelectedConcepts;
+
+		@Param({ "3" })
+		public double linkThreshold;
+
+		@Param({ "100" })
+		public int numSamples;
+
+		@Param({ "1" })
+		public int numThreads;
+
+		String[] varNames;
+		LanguagePartitions languagePartitions;
+		InitialGraphTemplate initialGraph;
+		double[][] thresholds;
+
+		@Setup
+		public void setUp(BenchmarkData data) {
+			varNames = data.selectConcepts(numSelectedConcepts);
+			languagePartitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(data.index, varNames, -1);
+			initialGraph = InitialGraphTemplate
+					.fromPairCounts(PairCountMatrix.fromLanguagePartitions(languagePartitions));
+			thresholds = new double[varNames.length][varNames.length];
+			for (double[] thresholdRow : thresholds) {
+				Arrays.fill(thresholdRow, linkThreshold);
+			}
+		}
+	}
+
+	@Benchmark
+	public CausalGraph skeletonInference(InferenceInput input) {
+		return SemanticMapInference.inferSemanticMap(input.languagePartitions.getPartitions(), input.varNames,
+				input.initialGraph, input.thresholds, false, false);
+	}
+
+	@Benchmark
+	public CausalGraph directionalityInference(InferenceInput input) {
+		return SemanticMapInference.inferSemanticMap(input.languagePartitions.getPartitions(), input.varNames,
+				input.initialGraph, input.thresholds, true, false);
+	}
+
+	@Benchmark
+	public CausalGraphSummary bootstrapConsensus(InferenceInput input) {
+		LanguagePartitions languagePartitions = input.languagePartitions;
+		CausalGraphSummary summary = new CausalGraphSummary(input.varNames);
+		new SampleExecutor(input.numThreads).run(input.numSamples, k -> {
+			SplittableRandom random = SampleRandom.forSample(42L, k);
+			List<Set<Set<Triple<String, String, String>>>> sample = languagePartitions
+					.samplePartitions(languagePartitions.resample(random));
+			return SemanticMapInference.inferSemanticMap(sample, input.varNames, input.initialGraph, input.thresholds,
+					true, false);
+		}, (k, semanticMap) -> summary.addGraph(semanticMap));
+		return summary;
+	}
+}
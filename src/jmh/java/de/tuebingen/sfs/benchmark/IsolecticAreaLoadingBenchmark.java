@@ -0,0 +1,35 @@
+package de.tuebingen.sfs.benchmark;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaReader;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IsolecticAreaLoadingBenchmark {
+
+	@Benchmark
+	public Set<IsolecticArea> loadFromFile(BenchmarkData data) throws IOException {
+		return IsolecticAreaReader.loadFromFile(data.inputFile);
+	}
+
+	@Benchmark
+	public IsolecticAreaIndex loadIndexFromFile(BenchmarkData data) throws IOException {
+		return IsolecticAreaReader.loadIndexFromFile(data.inputFile, null, null);
+	}
+}
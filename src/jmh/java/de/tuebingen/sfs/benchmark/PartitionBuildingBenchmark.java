@@ -0,0 +1,70 @@
+package de.tuebingen.sfs.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.util.struct.Triple;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PartitionBuildingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ConceptSelection {
+
+		// the number of (most frequent) concepts which the partitions are built for
+		@Param({ "30" })
+		public int numSelectedConcepts;
+
+		String[] concepts;
+		Set<String> conceptSet;
+
+		@Setup
+		public void setUp(BenchmarkData data) {
+			concepts = data.selectConcepts(numSelectedConcepts);
+			conceptSet = new TreeSet<String>(Arrays.asList(concepts));
+		}
+	}
+
+	@Benchmark
+	public List<Set<Set<Triple<String, String, String>>>> samplePartitions(BenchmarkData data) {
+		return IsolecticAreaProcessing.isolecticAreasToSamplePartitions(data.isolecticAreas);
+	}
+
+	@Benchmark
+	public List<Set<Set<Triple<String, String, String>>>> completeSamplePartitions(BenchmarkData data,
+			ConceptSelection selection) {
+		return IsolecticAreaProcessing.isolecticAreasToCompleteSamplePartitions(data.isolecticAreas,
+				selection.conceptSet, -1);
+	}
+
+	@Benchmark
+	public LanguagePartitions languagePartitionsFromAreas(BenchmarkData data, ConceptSelection selection) {
+		return IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(data.isolecticAreas, selection.concepts, -1);
+	}
+
+	@Benchmark
+	public LanguagePartitions languagePartitionsFromIndex(BenchmarkData data, ConceptSelection selection) {
+		return IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(data.index, selection.concepts, -1);
+	}
+}
@@ -0,0 +1,250 @@
+package de.tuebingen.sfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.tuebingen.sfs.inference.JsonOutput;
+import de.tuebingen.sfs.inference.SampleExecutor;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
+
+// keeps a loaded index of isolectic areas in memory and runs inference requests on
+// it, received over HTTP on the loopback interface only:
+//
+// POST /infer with a body whose first line holds the options of the analysis (as in
+// a batch manifest line, without -i and -vo), and whose further lines (if any) are the
+// selected concepts, one per line (replacing -c), which must all occur in the loaded
+// data (otherwise the request is rejected); the answer is a JSON object with
+// the textual output of the analysis and the contents of the DOT files it produced
+// (and of its JSON edge lists, if requested by -json)
+//
+// GET /status answers with the numbers of queued, running and finished requests
+//
+// the requests are run by a fixed number of workers, and rejected (503) if too many
+// are waiting; the samples of all requests share one worker pool, as in batch mode
+//
+// the textual output of a request is printed to its own stream (see
+// SemanticMapInference.runInference), so that several servers can run in one JVM
+public class InferenceServer {
+
+	public static final int DEFAULT_WORKERS = 2;
+	public static final int DEFAULT_QUEUE_CAPACITY = 32;
+	// larger request bodies are rejected (413)
+	public static final int MAX_REQUEST_BYTES = 1 << 20;
+
+	// options which make no sense for a request, which would write to the server's files,
+	// or whose output files are not part of the answer (the sweep table)
+	private static final String[] REJECTED_OPTIONS = { "vo", "log", "metrics", "batch", "wc", "serve", "inc",
+			"cp", "resume", "shard", "a", "pcf", "slt", "sgt" };
+
+	final IsolecticAreaIndex index;
+	final HttpServer server;
+	final ThreadPoolExecutor workers;
+	final SampleExecutor sampleExecutor;
+	final AtomicLong numFinished;
+	private final AtomicBoolean started;
+
+	public InferenceServer(IsolecticAreaIndex index, int port, int numWorkers, int queueCapacity, int numThreads)
+			throws IOException {
+		this.index = index;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.workers = new ThreadPoolExecutor(numWorkers, numWorkers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity));
+		this.sampleExecutor = SampleExecutor.withSharedPool(numThreads);
+		this.numFinished = new AtomicLong();
+		this.started = new AtomicBoolean();
+		server.createContext("/infer", this::handleInference);
+		server.createContext("/status", this::handleStatus);
+		// the connections are only waiting for the workers
+		server.setExecutor(Executors.newCachedThreadPool());
+	}
+
+	public void start() {
+		if (!started.compareAndSet(false, true)) {
+			throw new IllegalStateException("Server has already been started.");
+		}
+		server.start();
+	}
+
+	// can be called more than once (e.g. by a shutdown hook), and before start()
+	public void stop() {
+		server.stop(0);
+		((ExecutorService) server.getExecutor()).shutdownNow();
+		workers.shutdownNow();
+		sampleExecutor.shutdown();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	private void handleStatus(HttpExchange exchange) throws IOException {
+		String status = "queued " + workers.getQueue().size() + "\nrunning " + workers.getActiveCount()
+				+ "\nfinished " + numFinished.get() + "\n";
+		respond(exchange, 200, "text/plain", status);
+	}
+
+	private void handleInference(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			respond(exchange, 405, "text/plain", "Inference requests must be sent by POST.\n");
+			return;
+		}
+		byte[] body = readFully(exchange.getRequestBody(), MAX_REQUEST_BYTES);
+		if (body == null) {
+			respond(exchange, 413, "text/plain", "Request body exceeds " + MAX_REQUEST_BYTES + " bytes.\n");
+			return;
+		}
+		String request = new String(body, StandardCharsets.UTF_8);
+		Future<String> result;
+		try {
+			result = workers.submit(() -> runRequest(request));
+		} catch (RejectedExecutionException e) {
+			respond(exchange, 503, "text/plain", "Too many queued requests, try again later.\n");
+			return;
+		}
+		try {
+			respond(exchange, 200, "application/json", result.get());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ParseException) {
+				respond(exchange, 400, "text/plain", cause.getMessage() + "\n");
+			} else {
+				respond(exchange, 500, "text/plain", "Inference failed: " + cause + "\n");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			respond(exchange, 503, "text/plain", "Server is shutting down.\n");
+		}
+	}
+
+	// runs one request on the calling worker thread, and returns the JSON answer
+	String runRequest(String request) throws IOException, ParseException {
+		String[] lines = request.split("\r?\n");
+		List<String> args = SemanticMapInference.tokenizeManifestLine(lines.length > 0 ? lines[0] : "");
+		List<String> concepts = new ArrayList<String>();
+		for (int i = 1; i < lines.length; i++) {
+			String concept = lines[i].trim();
+			if (!concept.isEmpty()) {
+				concepts.add(concept);
+			}
+		}
+		// the input is the index loaded by the server, so -i is not even recognized
+		Options options = new Options();
+		for (Option option : SemanticMapInference.defineOptions().getOptions()) {
+			if (!option.getOpt().equals("i")) {
+				options.addOption(option);
+			}
+		}
+		CommandLine cmd = new DefaultParser().parse(options, args.toArray(new String[args.size()]));
+		for (String option : REJECTED_OPTIONS) {
+			if (cmd.hasOption(option)) {
+				throw new ParseException("Server requests cannot use -" + option + ".");
+			}
+		}
+		// the index only holds the concepts of the server's own selection
+		List<String> unknownConcepts = new ArrayList<String>();
+		for (String concept : concepts) {
+			if (index.getConcepts().lookup(concept) == -1) {
+				unknownConcepts.add(concept);
+			}
+		}
+		if (!unknownConcepts.isEmpty()) {
+			throw new ParseException("Unknown concepts (not in the data loaded by the server): "
+					+ String.join(", ", unknownConcepts));
+		}
+
+		File outputDir = Files.createTempDirectory("semantic-map").toFile();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream textOutput = new PrintStream(output, false, "UTF-8");
+		try {
+			InferenceSettings settings = InferenceSettings.fromCommandLine(cmd, textOutput);
+			settings.outputFilePath = new File(outputDir, "result").getPath();
+			if (!concepts.isEmpty()) {
+				settings.conceptSelection = concepts;
+			}
+			SemanticMapInference.runInference(settings, index, sampleExecutor, null, textOutput);
+			textOutput.flush();
+
+			StringBuilder json = new StringBuilder();
+			json.append("{\n  \"output\": ").append(JsonOutput.jsonString(output.toString("UTF-8")));
+			appendFiles(json, "dot", outputDir, ".dot", false);
+			// the JSON edge lists (-json) are embedded as they are
+			appendFiles(json, "json", outputDir, ".json", true);
+			json.append("\n}\n");
+			return json.toString();
+		} finally {
+			for (File file : outputDir.listFiles()) {
+				file.delete();
+			}
+			outputDir.delete();
+			numFinished.incrementAndGet();
+		}
+	}
+
+	// the files with the given extension as a JSON object from names to contents
+	private static void appendFiles(StringBuilder json, String key, File outputDir, String extension, boolean raw)
+			throws IOException {
+		File[] files = outputDir.listFiles((dir, name) -> name.endsWith(extension));
+		Arrays.sort(files);
+		json.append(",\n  \"").append(key).append("\": {");
+		for (int i = 0; i < files.length; i++) {
+			String name = files[i].getName().substring("result-".length());
+			String content = new String(Files.readAllBytes(files[i].toPath()), StandardCharsets.UTF_8);
+			json.append(i == 0 ? "\n" : ",\n").append("    ").append(JsonOutput.jsonString(name)).append(": ")
+					.append(raw ? content.trim() : JsonOutput.jsonString(content));
+		}
+		json.append(files.length == 0 ? "}" : "\n  }");
+	}
+
+	// null if the stream holds more than maxBytes bytes
+	private static byte[] readFully(InputStream in, int maxBytes) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] chunk = new byte[8192];
+		int length;
+		while ((length = in.read(chunk)) >= 0) {
+			if (buffer.size() + length > maxBytes)
+				return null;
+			buffer.write(chunk, 0, length);
+		}
+		return buffer.toByteArray();
+	}
+
+	private static void respond(HttpExchange exchange, int code, String contentType, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,395 @@
+package de.tuebingen.sfs;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+
+import de.tuebingen.sfs.inference.AreaConnectivityCriterion;
+import de.tuebingen.sfs.inference.MapMinimizer;
+
+// the settings of one semantic map inference run, as specified on the command line
+// or by one line of a batch manifest
+public class InferenceSettings {
+
+	String inputFilePath = "";
+	String outputFilePath = null;
+	String coordinatesFilePath = null;
+	// concepts given directly (in server requests), instead of a concept file
+	List<String> conceptSelection = null;
+	String logFilePath = null;
+	String metricsFilePath = null;
+	// if set, the skeleton is kept in this file and updated with the rows appended to
+	// the input file since the last run
+
+	String conceptFilePath = null;
+	String languageFilePath = null;
+	int minConceptOccurrences = 0;
+
+	double linkThreshold = 0;
+	int gapThreshold = -1;
+	// list the languages kept and discarded by the gap threshold
+	boolean gapDetails = false;
+
+	boolean directionality = false;
+
+	int numSamples = 1;
+	boolean bootstrapping = false;
+	boolean minimizeSize = false;
+	boolean randomLinkProcessingOrder = false;
+	// if positive, sampling stops as soon as all link and arrow frequencies have a
+	// smaller standard error (numSamples is then the maximal number of samples)
+	double maxStandardError = 0.0;
+
+	// the map of each sample is written to a gzipped file when it is consumed (see SampleMapWriter)
+	boolean outputAllSamples = false;
+	// each DOT file is accompanied by a JSON edge list (see JsonOutput)
+	boolean jsonOutput = false;
+	// the pair counts are stored in (and reused from) this file (see PairCountMatrix)
+	String pairCountFilePath = null;
+
+	int numThreads = 1;
+	Long seed = null;
+
+	// the samples consumed so far are written to the checkpoint file every few samples,
+	// and a resumed run continues after the samples in the checkpoint (if it exists)
+	String checkpointFilePath = null;
+	int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	boolean resume = false;
+
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 50;
+
+	// if numShards is positive, only the samples of shard shardIndex (counting from 1)
+	// are run, and written to the checkpoint file for merging (see MergeShards)
+	int shardIndex = 0;
+	int numShards = 0;
+
+	// if not null, sweep mode infers the skeletons for all combinations of these
+	// thresholds (see ThresholdSweep)
+	double[] sweepLinkThresholds = null;
+	int[] sweepGapThresholds = null;
+
+	// the skeleton search: PC* with the unit flow criterion or with the area
+	// connectivity criterion, or the repository's own search on the area separation
+	// criterion with a cache of per-language contributions
+	String engine = ENGINE_PCSTAR;
+	int cacheMegabytes = AreaConnectivityCriterion.DEFAULT_CACHE_MEGABYTES;
+
+	// in minimization mode without bootstrapping, PC* is run on the variable
+	// processing orders chosen by this strategy (see MapMinimizer)
+	String minimizationStrategy = MapMinimizer.RANDOM;
+
+	public static final String ENGINE_PCSTAR = "pcstar";
+	public static final String ENGINE_CONNECTIVITY = "connectivity";
+
+	// interprets the options and announces the resulting settings on standard output
+	public static InferenceSettings fromCommandLine(CommandLine cmd) throws ParseException {
+		return fromCommandLine(cmd, System.out);
+	}
+
+	// as above, announcing the settings on the given stream
+	public static InferenceSettings fromCommandLine(CommandLine cmd, PrintStream out) throws ParseException {
+		InferenceSettings settings = new InferenceSettings();
+
+		if (cmd.hasOption("i")) {
+			settings.inputFilePath = cmd.getOptionValue("input");
+			out.println("Reading isolectic sets from input file: " + settings.inputFilePath);
+		}
+
+		if (cmd.hasOption("vo")) {
+			settings.outputFilePath = cmd.getOptionValue("visOutput");
+			out.println(
+					"Will write semantic map in DOT format to output files with prefix " + settings.outputFilePath);
+		}
+
+		if (cmd.hasOption("vc")) {
+			settings.coordinatesFilePath = cmd.getOptionValue("coordinates");
+			out.println("DOT files will include coordinates specified in file " + settings.coordinatesFilePath);
+		}
+
+		if (cmd.hasOption("log")) {
+			settings.logFilePath = cmd.getOptionValue("logfile");
+			out.println("Will write textual output to log file " + settings.logFilePath);
+		}
+
+		if (cmd.hasOption("metrics")) {
+			settings.metricsFilePath = cmd.getOptionValue("metricsFile");
+			out.println("Will write timings and independence test counts to metrics file " + settings.metricsFilePath);
+		}
+
+		if (cmd.hasOption("b")) {
+			out.println("Will use bootstrapping on the language level to derive a consensus map.");
+			settings.bootstrapping = true;
+			settings.numSamples = 1000;
+		}
+
+		if (cmd.hasOption("m")) {
+			out.println("Will vary link processing order and output the map of minimal size.");
+			if (settings.bootstrapping) {
+				out.println("WARNING: combining bootstrap (-b) and minimization (-m) is an atypical use case!");
+			}
+			settings.minimizeSize = true;
+			settings.randomLinkProcessingOrder = true;
+			settings.numSamples = 1000;
+		}
+
+		if (cmd.hasOption("r")) {
+			out.println("Will vary link processing order to explore the space of possible maps.");
+			if (settings.minimizeSize) {
+				out.println(
+						"WARNING: randomization already happens due to minimization mode, the additional -r flag does not change anything!");
+			}
+			settings.randomLinkProcessingOrder = true;
+		}
+
+		if (cmd.hasOption("n")) {
+			settings.numSamples = Integer.parseInt(cmd.getOptionValue("numSamples"));
+			out.println("Will derive the results from " + settings.numSamples + " samples.");
+			if (!settings.bootstrapping && !settings.randomLinkProcessingOrder) {
+				out.println(
+						"WARNING: without bootstrap (-b) or randomization (-r, -m), all samples will yield the same map!");
+			}
+		}
+
+		if (cmd.hasOption("se")) {
+			settings.maxStandardError = Double.parseDouble(cmd.getOptionValue("maxStdError"));
+			out.println("Will stop sampling once the standard errors of all link and arrow frequencies are below "
+					+ settings.maxStandardError + " (after at most " + settings.numSamples + " samples).");
+		}
+
+		if (cmd.hasOption("t")) {
+			settings.numThreads = Integer.parseInt(cmd.getOptionValue("threads"));
+			out.println("Will distribute samples over " + settings.numThreads + " worker threads.");
+		}
+
+		if (cmd.hasOption("seed")) {
+			settings.seed = Long.parseLong(cmd.getOptionValue("randomSeed"));
+			out.println("Will derive all random choices from seed " + settings.seed + ".");
+		}
+
+		if (cmd.hasOption("d")) {
+			out.println("Will apply arrow inference in order to derive a diachronic semantic map.");
+			settings.directionality = true;
+		}
+
+		if (cmd.hasOption("c")) {
+			settings.conceptFilePath = cmd.getOptionValue("concepts");
+			out.println("Analysis is limited to concepts specified in file: " + settings.conceptFilePath);
+		}
+
+		if (cmd.hasOption("l")) {
+			settings.languageFilePath = cmd.getOptionValue("languages");
+			out.println("Analysis is limited to languages specified in file: " + settings.languageFilePath);
+		}
+
+		if (cmd.hasOption("lt")) {
+			settings.linkThreshold = Double.parseDouble(cmd.getOptionValue("linkThreshold"));
+			out.println("Will require at least " + settings.linkThreshold
+					+ " colexifications for a link (to correct for noisy input data).");
+		}
+
+		if (cmd.hasOption("gt")) {
+			settings.gapThreshold = Integer.parseInt(cmd.getOptionValue("gapThreshold"));
+			out.println("Will discard data from languages with more than " + settings.gapThreshold
+					+ " relevant concepts missing.");
+		}
+
+		if (cmd.hasOption("gd")) {
+			settings.gapDetails = true;
+			out.println("Will list the languages kept and discarded by the gap threshold.");
+		}
+
+		if (cmd.hasOption("e")) {
+			settings.engine = cmd.getOptionValue("engine");
+			if (!settings.engine.equals(ENGINE_PCSTAR) && !settings.engine.equals(ENGINE_CONNECTIVITY)) {
+				throw new ParseException("Unknown inference engine: " + settings.engine);
+			}
+			out.println("Will use the " + settings.engine + " engine for skeleton inference.");
+		}
+
+		if (cmd.hasOption("cs")) {
+			settings.cacheMegabytes = Integer.parseInt(cmd.getOptionValue("cacheSize"));
+			out.println("Will use up to " + settings.cacheMegabytes + " MB for caching independence tests.");
+		}
+
+		if (cmd.hasOption("cp")) {
+			settings.checkpointFilePath = cmd.getOptionValue("checkpoint");
+			if (cmd.hasOption("ci")) {
+				settings.checkpointInterval = Integer.parseInt(cmd.getOptionValue("checkpointInterval"));
+			}
+			out.println("Will write a checkpoint to file " + settings.checkpointFilePath + " every "
+					+ settings.checkpointInterval + " samples.");
+		}
+
+		if (cmd.hasOption("resume")) {
+			if (settings.checkpointFilePath == null) {
+				throw new ParseException("Resuming (-resume) requires a checkpoint file (-cp).");
+			}
+			settings.resume = true;
+			out.println("Will resume from the checkpoint file if it exists.");
+		}
+
+		if (cmd.hasOption("shard")) {
+			String shard = cmd.getOptionValue("shard");
+			int sep = shard.indexOf('/');
+			try {
+				settings.shardIndex = Integer.parseInt(shard.substring(0, Math.max(sep, 0)));
+				settings.numShards = Integer.parseInt(shard.substring(sep + 1));
+			} catch (NumberFormatException e) {
+				throw new ParseException("Shard must be specified as index/number (e.g. 3/16): " + shard);
+			}
+			if (settings.shardIndex < 1 || settings.shardIndex > settings.numShards) {
+				throw new ParseException("Shard index must be between 1 and the number of shards: " + shard);
+			}
+			if (settings.seed == null || settings.checkpointFilePath == null) {
+				throw new ParseException("Shard mode (-shard) requires a seed (-seed) and a shard file (-cp).");
+			}
+			if (settings.numSamples == 1 || settings.maxStandardError > 0.0) {
+				throw new ParseException("Shard mode (-shard) requires multiple samples, and cannot stop early (-se).");
+			}
+			out.println("Will run shard " + settings.shardIndex + " of " + settings.numShards + " (samples "
+					+ settings.getFirstShardSample() + " to " + (settings.getEndShardSample() - 1) + ").");
+		}
+
+		if (cmd.hasOption("a")) {
+			if (settings.outputFilePath == null) {
+				throw new ParseException("Writing the maps of all samples (-a) requires an output prefix (-vo).");
+			}
+			settings.outputAllSamples = true;
+			out.println("Will write the maps of all samples to " + settings.getAllSamplesFilePath());
+		}
+
+		if (cmd.hasOption("pcf")) {
+			settings.pairCountFilePath = cmd.getOptionValue("pairCountFile");
+		}
+
+		if (cmd.hasOption("json")) {
+			if (settings.outputFilePath == null) {
+				throw new ParseException("Writing JSON edge lists (-json) requires an output prefix (-vo).");
+			}
+			settings.jsonOutput = true;
+		}
+
+		if (cmd.hasOption("ms")) {
+			settings.minimizationStrategy = cmd.getOptionValue("minimizationStrategy");
+			if (!settings.minimizationStrategy.equals(MapMinimizer.RANDOM)
+					&& !settings.minimizationStrategy.equals(MapMinimizer.GREEDY)
+					&& !settings.minimizationStrategy.equals(MapMinimizer.LOCAL)) {
+				throw new ParseException("Unknown minimization strategy: " + settings.minimizationStrategy);
+			}
+			if (!settings.minimizeSize || settings.bootstrapping) {
+				throw new ParseException("Minimization strategies (-ms) require minimization mode (-m) without bootstrap (-b).");
+			}
+			out.println("Will choose the link processing orders by the " + settings.minimizationStrategy
+					+ " strategy.");
+		}
+		if (settings.minimizeSize && !settings.bootstrapping
+				&& (settings.checkpointFilePath != null || settings.maxStandardError > 0.0)) {
+			if (cmd.hasOption("ms")) {
+				throw new ParseException("Minimization strategies (-ms) abort runs early, "
+						+ "they cannot be combined with -cp, -shard or -se.");
+			}
+			out.println("Will complete all minimization runs, as -cp, -shard and -se need the maps of all runs.");
+		}
+
+		if (cmd.hasOption("inc")) {
+			// a stored map cannot be updated with new rows so that it agrees with the map
+			// PC* infers on all rows
+			throw new ParseException("Incremental mode (-inc) is no longer available, since updating a stored map "
+					+ "cannot reproduce the map inferred by PC*; please run the inference on the whole input file.");
+		}
+
+		if (cmd.hasOption("slt") || cmd.hasOption("sgt")) {
+			settings.sweepLinkThresholds = cmd.hasOption("slt") ? parseRange(cmd.getOptionValue("sweepLinkThresholds"))
+					: new double[] { settings.linkThreshold };
+			double[] gapThresholds = cmd.hasOption("sgt") ? parseRange(cmd.getOptionValue("sweepGapThresholds"))
+					: new double[] { settings.gapThreshold };
+			settings.sweepGapThresholds = new int[gapThresholds.length];
+			for (int i = 0; i < gapThresholds.length; i++) {
+				settings.sweepGapThresholds[i] = (int) gapThresholds[i];
+			}
+			if (settings.randomLinkProcessingOrder || settings.directionality
+					|| settings.checkpointFilePath != null || settings.maxStandardError > 0.0
+					|| settings.outputAllSamples || settings.jsonOutput) {
+				throw new ParseException("Sweep mode (-slt, -sgt) infers skeletons with or without bootstrap (-b), "
+						+ "it cannot be combined with -m, -r, -d, -cp, -shard, -se, -a or -json.");
+			}
+			out.println("Will sweep " + settings.sweepLinkThresholds.length + " link thresholds and "
+					+ settings.sweepGapThresholds.length + " gap thresholds, sharing the data and the initial graph.");
+		}
+
+		return settings;
+	}
+
+	// a comma-separated list of values, or a range from:to:step (including to)
+	static double[] parseRange(String range) throws ParseException {
+		try {
+			String[] parts = range.split(":");
+			if (parts.length == 3) {
+				double from = Double.parseDouble(parts[0]);
+				double to = Double.parseDouble(parts[1]);
+				double step = Double.parseDouble(parts[2]);
+				if (step <= 0.0 || to < from) {
+					throw new ParseException("Invalid range (expected from:to:step with positive step): " + range);
+				}
+				// tolerate rounding errors in the last step
+				int numValues = (int) Math.floor((to - from) / step + 1e-9) + 1;
+				double[] values = new double[numValues];
+				for (int i = 0; i < numValues; i++) {
+					values[i] = from + i * step;
+				}
+				return values;
+			}
+			if (parts.length != 1) {
+				throw new ParseException("Invalid range (expected from:to:step or a list of values): " + range);
+			}
+			String[] items = range.split(",");
+			double[] values = new double[items.length];
+			for (int i = 0; i < items.length; i++) {
+				values[i] = Double.parseDouble(items[i].trim());
+			}
+			return values;
+		} catch (NumberFormatException e) {
+			throw new ParseException("Invalid number in range: " + range);
+		}
+	}
+
+	public String getInputFilePath() {
+		return inputFilePath;
+	}
+
+	public String getOutputFilePath() {
+		return outputFilePath;
+	}
+
+	// each shard writes its own file of sample maps
+	public String getAllSamplesFilePath() {
+		return outputFilePath + (numShards == 0 ? "" : "-shard" + shardIndex) + "-samples.tsv.gz";
+	}
+
+	public String getConceptFilePath() {
+		return conceptFilePath;
+	}
+
+	public String getLanguageFilePath() {
+		return languageFilePath;
+	}
+
+	public int getNumSamples() {
+		return numSamples;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	// the range of samples to run, which is a contiguous part of all samples in shard mode
+	public int getFirstShardSample() {
+		return numShards == 0 ? 0 : (int) ((long) (shardIndex - 1) * numSamples / numShards);
+	}
+
+	public int getEndShardSample() {
+		return numShards == 0 ? numSamples : (int) ((long) shardIndex * numSamples / numShards);
+	}
+}
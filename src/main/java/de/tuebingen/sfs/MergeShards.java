@@ -0,0 +1,133 @@
+package de.tuebingen.sfs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.causal.data.CausalGraphSummary;
+import de.tuebingen.sfs.inference.MinimalMapTracker;
+import de.tuebingen.sfs.inference.SamplingCheckpoint;
+
+// combines the shard files written by SemanticMapInference in shard mode (-shard) into
+// the consensus map and the minimal map; the sample maps are replayed in sample order,
+// so the result is the same as that of a single run with the same seed
+public class MergeShards {
+
+	private static Options defineOptions() {
+		Options options = new Options();
+
+		Option output = Option.builder("vo").longOpt("visOutput").argName("outputPrefix").hasArg().required(false)
+				.desc("Specify path and filename prefix for the visualized map(s).").build();
+		options.addOption(output);
+
+		Option coordinates = Option.builder("vc").longOpt("coordinates").argName("coordFile").hasArg().required(false)
+				.desc("Specify coordinates for visualization output.").build();
+		options.addOption(coordinates);
+
+		Option minimalMapOutput = new Option("m", "minimalMap", false,
+				"Output semantic map of minimal size among samples.");
+		options.addOption(minimalMapOutput);
+
+		return options;
+	}
+
+	public static void main(String[] args) {
+		Options options = defineOptions();
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter helper = new HelpFormatter();
+
+		try {
+			CommandLine cmd = parser.parse(options, args);
+			if (cmd.getArgList().isEmpty()) {
+				throw new ParseException("No shard files specified.");
+			}
+			List<SamplingCheckpoint> shards = readShards(cmd.getArgList());
+			String[] varNames = shards.get(0).getVarNames();
+			int numSamples = shards.get(shards.size() - 1).getEndSample();
+			System.out.println("Merging " + numSamples + " samples from " + shards.size() + " shards.");
+
+			CausalGraphSummary sampleSummary = new CausalGraphSummary(varNames);
+			MinimalMapTracker minimalMapTracker = new MinimalMapTracker();
+			for (SamplingCheckpoint shard : shards) {
+				for (int k = shard.getFirstSample(); k < shard.getEndSample(); k++) {
+					CausalGraph semanticMap = shard.getSampleMap(k).toGraph(varNames);
+					sampleSummary.addGraph(semanticMap);
+					minimalMapTracker.replay(k, semanticMap);
+				}
+			}
+
+			String outputFilePath = cmd.getOptionValue("visOutput");
+			if (cmd.hasOption("m")) {
+				SemanticMapInference.outputMinimalMap(minimalMapTracker, numSamples, outputFilePath,
+						SemanticMapInference.loadCoordinates(cmd.getOptionValue("coordinates")));
+			}
+			SemanticMapInference.outputConsensus(sampleSummary, numSamples, outputFilePath,
+					SemanticMapInference.loadCoordinates(cmd.getOptionValue("coordinates")));
+		} catch (ParseException e) {
+			System.out.println(e.getMessage());
+			helper.printHelp("MergeShards [options] shardFile...", options);
+			System.exit(0);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// reads the shards and orders them by their first sample; the shards must belong to
+	// the same analysis and split of the samples, each must have run all its planned
+	// samples, and together they must cover all samples without overlaps
+	static List<SamplingCheckpoint> readShards(List<String> shardFilePaths) throws IOException {
+		List<SamplingCheckpoint> shards = new ArrayList<SamplingCheckpoint>();
+		for (String shardFilePath : shardFilePaths) {
+			SamplingCheckpoint shard = SamplingCheckpoint.readFromFile(shardFilePath);
+			if (shard.getNumShards() == 0) {
+				throw new IOException("File " + shardFilePath + " is a checkpoint, not a shard file (-shard).");
+			}
+			if (shard.getEndSample() < shard.getPlannedEndSample()) {
+				throw new IOException("Shard " + shard.getShardIndex() + "/" + shard.getNumShards() + " in file "
+						+ shardFilePath + " stopped early at sample " + shard.getEndSample() + " of samples "
+						+ shard.getFirstSample() + " to " + (shard.getPlannedEndSample() - 1)
+						+ ", resume it (-resume) before merging.");
+			}
+			if (!shards.isEmpty()) {
+				SamplingCheckpoint first = shards.get(0);
+				if (!shard.getRunDescription().equals(first.getRunDescription())
+						|| shard.getBaseSeed() != first.getBaseSeed()
+						|| !Arrays.equals(shard.getVarNames(), first.getVarNames())
+						|| shard.getNumShards() != first.getNumShards()
+						|| shard.getTotalSamples() != first.getTotalSamples()) {
+					throw new IOException("Shard file " + shardFilePath + " belongs to a different analysis than "
+							+ shardFilePaths.get(0) + ".");
+				}
+			}
+			shards.add(shard);
+		}
+		shards.sort(Comparator.comparingInt(SamplingCheckpoint::getFirstSample));
+		int nextSample = 0;
+		for (SamplingCheckpoint shard : shards) {
+			if (shard.getFirstSample() != nextSample) {
+				throw new IOException("Shards do not cover a contiguous range of samples: samples from "
+						+ Math.min(nextSample, shard.getFirstSample()) + " on are "
+						+ (shard.getFirstSample() > nextSample ? "missing." : "contained in several shards."));
+			}
+			nextSample = shard.getEndSample();
+		}
+		int totalSamples = shards.get(0).getTotalSamples();
+		if (nextSample < totalSamples) {
+			throw new IOException("Shards do not cover all " + totalSamples + " samples: samples from " + nextSample
+					+ " on are missing.");
+		}
+		return shards;
+	}
+}
@@ -5,12 +5,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
@@ -22,29 +24,55 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
-import de.tuebingen.sfs.causal.algorithms.PcStarAlgorithm;
 import de.tuebingen.sfs.causal.data.CausalGraph;
 import de.tuebingen.sfs.causal.data.CausalGraphOutput;
 import de.tuebingen.sfs.causal.data.CausalGraphSummary;
-import de.tuebingen.sfs.causal.heuristics.arrows.CausalArrowFinder;
-import de.tuebingen.sfs.causal.heuristics.arrows.CausalArrowFinderPcDefault;
-import de.tuebingen.sfs.causal.heuristics.separation.PartialCorrelationDiscreteUnitFlow;
+import de.tuebingen.sfs.inference.AreaConnectivityCriterion;
+import de.tuebingen.sfs.inference.AsyncOutputWriter;
+import de.tuebingen.sfs.inference.InferenceMetrics;
+import de.tuebingen.sfs.inference.InitialGraphTemplate;
+import de.tuebingen.sfs.inference.JsonOutput;
+import de.tuebingen.sfs.inference.LinkFrequencyMonitor;
+import de.tuebingen.sfs.inference.MapMinimizer;
+import de.tuebingen.sfs.inference.MinimalMapTracker;
+import de.tuebingen.sfs.inference.PcStarSearch;
+import de.tuebingen.sfs.inference.SampleExecutor;
+import de.tuebingen.sfs.inference.SampleMapWriter;
+import de.tuebingen.sfs.inference.SampleRandom;
+import de.tuebingen.sfs.inference.SamplingCheckpoint;
+import de.tuebingen.sfs.inference.SemanticMapLinks;
+import de.tuebingen.sfs.inference.ThresholdSweep;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
 import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaCache;
 import de.tuebingen.sfs.lextyp.io.IsolecticAreaReader;
-import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguageCoverage;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
 import de.tuebingen.sfs.util.io.ListReader;
 import de.tuebingen.sfs.util.struct.Triple;
 
 public class SemanticMapInference {
 
-	private static List<Set<Set<Triple<String, String, String>>>> resamplePartitionsLanguageLevel(
-			List<Set<Set<Triple<String, String, String>>>> samplePartitions) {
-		int size = samplePartitions.size();
-		List<Set<Set<Triple<String, String, String>>>> resample = new ArrayList<>(size);
-		for (int i = 0; i < size; i++) {
-			resample.add(samplePartitions.get((int) (Math.random() * size)));
-		}
-		return resample;
+	// adaptive sampling checks for convergence every few samples, but not before a
+	// minimal number of samples has been drawn (low-frequency links need some time to
+	// show up at all)
+	private static final int ADAPTIVE_MIN_SAMPLES = 100;
+	private static final int ADAPTIVE_CHECK_INTERVAL = 10;
+
+	public static CausalGraph inferSemanticMap(List<Set<Set<Triple<String, String, String>>>> sample,
+			String[] varNames, InitialGraphTemplate initialGraph, double[][] thresholds, boolean directionality,
+			boolean randomLinkProcessingOrder) {
+		return inferSemanticMap(sample, varNames, initialGraph, thresholds, directionality, randomLinkProcessingOrder,
+				null);
+	}
+
+	// as above, recording the time spent in each phase if metrics are given
+	public static CausalGraph inferSemanticMap(List<Set<Set<Triple<String, String, String>>>> sample,
+			String[] varNames, InitialGraphTemplate initialGraph, double[][] thresholds, boolean directionality,
+			boolean randomLinkProcessingOrder, InferenceMetrics metrics) {
+		return new PcStarSearch(varNames, initialGraph, thresholds, directionality, null).run(sample, null, varNames,
+				thresholds, randomLinkProcessingOrder, null, metrics);
 	}
 
 	private static String[] createVarNames(Set<String> concepts) {
@@ -57,22 +85,33 @@ public class SemanticMapInference {
 		return varNames;
 	}
 
-	private static Options defineOptions() {
+	static Options defineOptions() {
 		Options options = new Options();
 
-		Option allSamples = new Option("a", "allSamples", false, "Output maps resulting from each sample.");
+		Option allSamples = new Option("a", "allSamples", false,
+				"Output maps resulting from each sample (to a gzipped file with the output prefix, see SummarizeSamples).");
 		options.addOption(allSamples);
 
 		Option bootstrap = new Option("b", "bootstrap", false, "Derive confidence values via bootstrapping.");
 		options.addOption(bootstrap);
-		// TODO: add optional specification of the number of bootstrap samples
+
+		Option numSamples = Option.builder("n").longOpt("numSamples").argName("numSamples").hasArg().required(false)
+				.desc("Specify number of samples for bootstrapping and minimization. (default: 1000)").build();
+		options.addOption(numSamples);
+
+		Option maxStdError = Option.builder("se").longOpt("maxStdError").argName("tolerance").hasArg()
+				.required(false)
+				.desc("Stop sampling early once the standard errors of all link and arrow frequencies are below the tolerance (e.g. 0.01).")
+				.build();
+		options.addOption(maxStdError);
 
 		Option directionality = new Option("d", "directionality", false,
 				"Perform directionality inference to produce a diachronic semantic map.");
 		options.addOption(directionality);
 		// TODO: add optional specification of strategy for directionality inference
 
-		Option randomOrder = new Option("r", "randomOrder", false, "Randomize link deletion order (for minimization).");
+		Option randomOrder = new Option("r", "randomOrder", false,
+				"Randomize link deletion order (for minimization).");
 		options.addOption(randomOrder);
 
 		Option minimalMapOutput = new Option("m", "minimalMap", false,
@@ -95,6 +134,17 @@ public class SemanticMapInference {
 				.desc("Specify path and filename prefix for the visualized map(s).").build();
 		options.addOption(output);
 
+		Option pairCountFile = Option.builder("pcf").longOpt("pairCountFile").argName("countFile").hasArg()
+				.required(false)
+				.desc("Store the colexification counts of the concept pairs per language in this file, "
+						+ "and reuse them as long as the input and the selection do not change.")
+				.build();
+		options.addOption(pairCountFile);
+
+		Option jsonOutput = new Option("json", "jsonOutput", false,
+				"Write a JSON edge list (with the output prefix) next to each visualized map.");
+		options.addOption(jsonOutput);
+
 		Option logfile = Option.builder("log").longOpt("logfile").argName("logFile").hasArg().required(false)
 				.desc("Specify logfile (textual output).").build();
 		options.addOption(logfile);
@@ -114,6 +164,101 @@ public class SemanticMapInference {
 				.build();
 		options.addOption(gapThreshold);
 
+		Option gapDetails = new Option("gd", "gapDetails", false,
+				"List the languages kept and discarded by the gap threshold, with their numbers of gaps.");
+		options.addOption(gapDetails);
+
+		Option threads = Option.builder("t").longOpt("threads").argName("numThreads").hasArg().required(false)
+				.desc("Specify number of worker threads for processing samples in parallel (default: 1).").build();
+		options.addOption(threads);
+
+		Option writeCache = Option.builder("wc").longOpt("writeCache").argName("cacheFile").hasArg().required(false)
+				.desc("Compile the input file into a binary cache file (usable as input file) and exit.").build();
+		options.addOption(writeCache);
+
+		Option seed = Option.builder("seed").longOpt("randomSeed").argName("seed").hasArg().required(false)
+				.desc("Specify random seed for resampling and link order randomization (for reproducible results).")
+				.build();
+		options.addOption(seed);
+
+		Option engine = Option.builder("e").longOpt("engine").argName("engine").hasArg().required(false)
+				.desc("Specify skeleton inference engine: pcstar (PC* with unit flow criterion) or connectivity (PC* with cached area connectivity criterion). "
+						+ "The connectivity engine counts an area as explained by a separating set if the two concepts are connected through the set within the area, "
+						+ "so it finds every separation of the unit flow criterion, and possibly more. "
+						+ "(default: pcstar)")
+				.build();
+		options.addOption(engine);
+
+		Option cacheSize = Option.builder("cs").longOpt("cacheSize").argName("megabytes").hasArg().required(false)
+				.desc("Specify memory for caching independence tests in the connectivity engine, 0 for no cache. (default: 256)")
+				.build();
+		options.addOption(cacheSize);
+
+		Option minimizationStrategy = Option.builder("ms").longOpt("minimizationStrategy").argName("strategy")
+				.hasArg().required(false)
+				.desc("Specify how PC* chooses variable processing orders in minimization mode: random, greedy (concepts with the fewest colexifications first) or local (swaps in the best order so far). (default: random)")
+				.build();
+		options.addOption(minimizationStrategy);
+
+		Option sweepLinkThresholds = Option.builder("slt").longOpt("sweepLinkThresholds").argName("range").hasArg()
+				.required(false)
+				.desc("Sweep mode: infer skeletons with PC* for these link thresholds (from:to:step or a comma-separated list), writing one table to <outputPrefix>-sweep.tsv.")
+				.build();
+		options.addOption(sweepLinkThresholds);
+
+		Option sweepGapThresholds = Option.builder("sgt").longOpt("sweepGapThresholds").argName("range").hasArg()
+				.required(false)
+				.desc("Sweep mode: infer skeletons for these gap thresholds (from:to:step or a comma-separated list).")
+				.build();
+		options.addOption(sweepGapThresholds);
+
+		Option checkpoint = Option.builder("cp").longOpt("checkpoint").argName("checkpointFile").hasArg()
+				.required(false)
+				.desc("Periodically write the samples consumed so far to the given checkpoint file.").build();
+		options.addOption(checkpoint);
+
+		Option checkpointInterval = Option.builder("ci").longOpt("checkpointInterval").argName("numSamples")
+				.hasArg().required(false)
+				.desc("Specify number of samples between two checkpoints. (default: 50)").build();
+		options.addOption(checkpointInterval);
+
+		Option resume = new Option("resume", "resume", false,
+				"Continue after the samples in the checkpoint file (-cp), if it exists.");
+		options.addOption(resume);
+
+		Option shard = Option.builder("shard").longOpt("shard").argName("index/number").hasArg().required(false)
+				.desc("Run only one of several shards of the samples (e.g. 3/16), writing its maps to the checkpoint file (-cp) for merging.")
+				.build();
+		options.addOption(shard);
+
+		Option incremental = Option.builder("inc").longOpt("incrementalState").argName("stateFile").hasArg()
+				.required(false)
+				.desc("No longer available (rejected): updating a stored map with appended rows cannot reproduce the map inferred by PC*.")
+				.build();
+		options.addOption(incremental);
+
+		Option metrics = Option.builder("metrics").longOpt("metricsFile").argName("metricsFile").hasArg()
+				.required(false)
+				.desc("Write phase timings and independence test counts to the given file (CSV if it ends in .csv, JSON otherwise).")
+				.build();
+		options.addOption(metrics);
+
+		Option batch = Option.builder("batch").longOpt("batchManifest").argName("manifestFile").hasArg()
+				.required(false)
+				.desc("Run the analyses specified in the manifest file (one set of options per line) on the input file.")
+				.build();
+		options.addOption(batch);
+
+		Option serve = Option.builder("serve").longOpt("serverPort").argName("port").hasArg().required(false)
+				.desc("Keep the input file loaded and answer inference requests on the given local port (see InferenceServer).")
+				.build();
+		options.addOption(serve);
+
+		Option serverWorkers = Option.builder("sw").longOpt("serverWorkers").argName("numWorkers").hasArg()
+				.required(false).desc("Specify number of requests the server runs at the same time. (default: 2)")
+				.build();
+		options.addOption(serverWorkers);
+
 		return options;
 	}
 
@@ -127,240 +272,748 @@ public class SemanticMapInference {
 
 		try {
 			cmd = parser.parse(options, args);
+			InferenceSettings settings = InferenceSettings.fromCommandLine(cmd);
 
-			String inputFilePath = "";
-			String outputFilePath = null;
-			String coordinatesFilePath = null;
+			if (cmd.hasOption("wc")) {
+				String cacheFilePath = cmd.getOptionValue("writeCache");
+				System.out.println("Writing binary cache of isolectic areas to file: " + cacheFilePath);
+				IsolecticAreaCache.write(IsolecticAreaReader.loadFromFile(settings.inputFilePath), cacheFilePath);
+				return;
+			}
 
-			Set<String> concepts = new TreeSet<String>();
-			String conceptFilePath = null;
-			int minConceptOccurrences = 0;
+			if (cmd.hasOption("batch")) {
+				List<InferenceSettings> jobs = readBatchManifest(cmd.getOptionValue("batchManifest"), cmd, options);
+				if (!runBatch(settings, jobs)) {
+					System.exit(1);
+				}
+				return;
+			}
 
-			double linkThreshold = 0;
-			int gapThreshold = -1;
+			if (cmd.hasOption("serve")) {
+				serve(settings, Integer.parseInt(cmd.getOptionValue("serverPort")),
+						cmd.hasOption("sw") ? Integer.parseInt(cmd.getOptionValue("serverWorkers"))
+								: InferenceServer.DEFAULT_WORKERS);
+				return;
+			}
 
-			boolean directionality = false;
+			// only the isolectic areas which contain selected concepts are kept while reading
+			Set<String> conceptFilter = null;
+			if (settings.conceptFilePath != null) {
+				conceptFilter = new TreeSet<String>(ListReader.listFromFile(settings.conceptFilePath));
+			}
+			Set<String> languageFilter = null;
+			if (settings.languageFilePath != null) {
+				languageFilter = new TreeSet<String>(ListReader.listFromFile(settings.languageFilePath));
+			}
+			InferenceMetrics metrics = settings.metricsFilePath == null ? null : new InferenceMetrics();
+			long startTime = System.nanoTime();
+			IsolecticAreaIndex index = IsolecticAreaReader.loadIndexFromFile(settings.inputFilePath, conceptFilter,
+					languageFilter);
+			if (metrics != null) {
+				metrics.addTime(InferenceMetrics.LOAD, startTime);
+			}
 
-			int numSamples = 1;
-			boolean bootstrapping = false;
-			boolean minimizeSize = false;
-			boolean randomLinkProcessingOrder = false;
+			runInference(settings, index, new SampleExecutor(settings.numThreads), metrics, System.out);
+		} catch (ParseException e) {
+			System.out.println(e.getMessage());
+			helper.printHelp(" ", options);
+			System.exit(0);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
 
-			if (cmd.hasOption("i")) {
-				inputFilePath = cmd.getOptionValue("input");
-				System.out.println("Reading isolectic sets from input file: " + inputFilePath);
-			}
+	}
 
-			if (cmd.hasOption("vo")) {
-				outputFilePath = cmd.getOptionValue("visOutput");
-				System.out
-						.println("Will write semantic map in DOT format to output files with prefix " + outputFilePath);
+	// runs one analysis on an already loaded index; the textual output goes to the
+	// log file of the settings (if specified), and to standard output otherwise
+	public static void runInference(InferenceSettings settings, IsolecticAreaIndex index, SampleExecutor executor)
+			throws IOException {
+		InferenceMetrics metrics = settings.metricsFilePath == null ? null : new InferenceMetrics();
+		runInference(settings, index, executor, metrics, System.out);
+	}
+
+	// as above, adding to the given metrics (if not null), which are written to the
+	// metrics file of the settings at the end, and printing the textual output to the
+	// given stream if there is no log file
+	public static void runInference(InferenceSettings settings, IsolecticAreaIndex index, SampleExecutor executor,
+			InferenceMetrics metrics, PrintStream textOutput) throws IOException {
+		PrintStream log = null;
+		if (settings.logFilePath != null) {
+			log = new PrintStream(new FileOutputStream(new File(settings.logFilePath)), true, "UTF-8");
+			textOutput = log;
+		}
+		try {
+			if (settings.sweepLinkThresholds != null) {
+				runSweepWithOutput(settings, index, executor, metrics, textOutput);
+			} else {
+				try (AsyncOutputWriter output = new AsyncOutputWriter()) {
+					runInferenceWithOutput(settings, index, executor, metrics, output, textOutput);
+				}
 			}
+		} finally {
+			if (log != null) {
+				log.close();
+			}
+		}
+		if (metrics != null) {
+			metrics.writeToFile(settings.metricsFilePath);
+		}
+	}
+
+	// the DOT, JSON and sample map files are written in the background by the given writer
+	private static void runInferenceWithOutput(InferenceSettings settings, IsolecticAreaIndex index,
+			SampleExecutor executor, InferenceMetrics metrics, AsyncOutputWriter output, PrintStream textOutput)
+			throws IOException {
+		int numSamples = settings.numSamples;
+		final String outputFilePath = settings.outputFilePath;
+
+		Set<String> languageFilter = loadLanguageFilter(settings);
+		Set<String> concepts = selectConcepts(settings, index);
+		Map<String, Point2D.Double> coordinates = loadCoordinates(settings.coordinatesFilePath);
+
+		// selected/filtered concepts are the variables for causal inference
+		String[] varNames = createVarNames(concepts);
+
+		// partitions are built once per language; bootstrap samples only draw language
+		// indices (a gap threshold of -1 keeps all languages)
+		long startTime = System.nanoTime();
+		LanguagePartitions allLanguagePartitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(index,
+				languageFilter, varNames, -1);
+		int[] keptLanguages = settings.gapThreshold < 0 ? null
+				: selectLanguagesWithFewGaps(allLanguagePartitions, settings.gapThreshold, settings.gapDetails,
+						textOutput);
+		final LanguagePartitions languagePartitions = keptLanguages == null ? allLanguagePartitions
+				: allLanguagePartitions.select(keptLanguages);
+		List<Set<Set<Triple<String, String, String>>>> samplePartitions = languagePartitions.getPartitions();
+		System.err.println("Extracted isolectic sets from " + samplePartitions.size() + " languages.");
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.PARTITIONS, startTime);
+			startTime = System.nanoTime();
+		}
 
-			if (cmd.hasOption("vc")) {
-				coordinatesFilePath = cmd.getOptionValue("coordinates");
-				System.out.println("DOT files will include coordinates specified in file " + coordinatesFilePath);
+		// all concept pairs which are colexified somewhere are linked in the initial graph
+		PairCountMatrix allPairCounts = loadPairCounts(settings, allLanguagePartitions, textOutput);
+		InitialGraphTemplate initialGraph = InitialGraphTemplate.fromPairCounts(allPairCounts);
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.SEEDING, startTime);
+			metrics.setCount("concepts", varNames.length);
+			metrics.setCount("languages", samplePartitions.size());
+			metrics.setCount("initialLinks", initialGraph.getNumLinks());
+			metrics.setCount("threads", executor.getNumThreads());
+		}
+
+		CausalGraphSummary sampleSummary = new CausalGraphSummary(varNames);
+
+		MinimalMapTracker minimalMapTracker = new MinimalMapTracker(textOutput);
+
+		double[][] thresholds = new double[concepts.size()][concepts.size()];
+		for (double[] thresholdRow : thresholds) {
+			Arrays.fill(thresholdRow, settings.linkThreshold);
+		}
+
+		// PC* on the connectivity criterion represents a sample by its language
+		// multiplicities, and shares its cache of per-language test outcomes between all
+		// samples
+		final int[] allLanguages = new int[languagePartitions.getNumLanguages()];
+		Arrays.fill(allLanguages, 1);
+		final AreaConnectivityCriterion connectivity = settings.engine.equals(InferenceSettings.ENGINE_CONNECTIVITY)
+				? new AreaConnectivityCriterion(languagePartitions, settings.cacheMegabytes)
+				: null;
+		final PcStarSearch pcStar = new PcStarSearch(varNames, initialGraph, thresholds, settings.directionality,
+				connectivity);
+		// without resampling, PC* minimizes by searching over variable processing orders,
+		// aborting the runs which cannot yield a smaller map (unless checkpoints or the
+		// stopping rule need the maps of all runs)
+		final MapMinimizer minimizer = settings.minimizeSize && !settings.bootstrapping
+				&& settings.checkpointFilePath == null && settings.maxStandardError <= 0.0
+						? new MapMinimizer(pcStar, samplePartitions, allLanguages,
+								keptLanguages == null ? allPairCounts : allPairCounts.select(keptLanguages),
+								settings.minimizationStrategy)
+						: null;
+
+		// the link frequencies serve the stopping rule, the JSON consensus and the textual
+		// consensus on other streams than standard output (see printConsensus)
+		final LinkFrequencyMonitor frequencyMonitor = numSamples > 1 && (settings.maxStandardError > 0.0
+				|| settings.jsonOutput || textOutput != System.out) ? new LinkFrequencyMonitor(varNames.length) : null;
+
+		startTime = System.nanoTime();
+		if (numSamples == 1) {
+			SplittableRandom random = !settings.randomLinkProcessingOrder ? null
+					: settings.seed != null ? new SplittableRandom(settings.seed) : new SplittableRandom();
+			CausalGraph semanticMap = pcStar.infer(samplePartitions, allLanguages, random, metrics);
+			if (metrics != null) {
+				metrics.addTime(InferenceMetrics.SAMPLING, startTime);
+				startTime = System.nanoTime();
 			}
 
-			if (cmd.hasOption("b")) {
-				System.out.println("Will use bootstrapping on the language level to derive a consensus map.");
-				bootstrapping = true;
-				numSamples = 1000;
+			if (settings.outputAllSamples) {
+				SampleMapWriter sampleWriter = new SampleMapWriter(settings.getAllSamplesFilePath(), varNames);
+				output.submit(() -> sampleWriter.write(0,
+						SemanticMapLinks.fromGraph(semanticMap, varNames, settings.directionality)));
+				output.closeWhenDone(sampleWriter);
 			}
 
-			if (cmd.hasOption("m")) {
-				System.out.println("Will vary link processing order and output the map of minimal size.");
-				if (bootstrapping) {
-					System.out.println(
-							"WARNING: combining bootstrap (-b) and minimization (-m) is an atypical use case!");
+			textOutput.println("\nRESULT:");
+			textOutput.println("=======\n");
+			printMap(semanticMap, varNames, settings.directionality, textOutput);
+
+			// generate DOT file for visualizing the output (if specified)
+			if (outputFilePath != null) {
+				output.writeFile(outputFilePath + "-map.dot",
+						out -> CausalGraphOutput.outputToDotFormat(semanticMap, out, coordinates, 50));
+				if (settings.jsonOutput) {
+					output.writeFile(outputFilePath + "-map.json", out -> JsonOutput.writeMap(
+							SemanticMapLinks.fromGraph(semanticMap, varNames, settings.directionality), varNames, out));
 				}
-				minimizeSize = true;
-				randomLinkProcessingOrder = true;
-				numSamples = 1000;
 			}
-
-			if (cmd.hasOption("r")) {
-				System.out.println("Will vary link processing order to explore the space of possible maps.");
-				if (minimizeSize) {
-					System.out.println(
-							"WARNING: randomization already happens due to minimization mode, the additional -r flag does not change anything!");
+		} else {
+			final boolean resample = settings.bootstrapping;
+			final boolean randomOrder = settings.randomLinkProcessingOrder;
+			final boolean arrows = settings.directionality;
+			final boolean trackMinimalMap = settings.minimizeSize;
+			final boolean seeded = settings.seed != null;
+			final double maxStandardError = settings.maxStandardError;
+
+			// a resumed run takes the seed from the checkpoint, and replays its samples
+			final SamplingCheckpoint checkpoint = openCheckpoint(settings, varNames,
+					languagePartitions.getNumLanguages());
+			final String checkpointFilePath = settings.checkpointFilePath;
+			final int checkpointInterval = settings.checkpointInterval;
+			final long baseSeed = checkpoint != null ? checkpoint.getBaseSeed()
+					: seeded ? settings.seed : new SplittableRandom().nextLong();
+			// in shard mode, only a part of the samples is run
+			int firstSample = settings.getFirstShardSample();
+			int endSample = settings.getEndShardSample();
+			// the sample maps are written as they are consumed, starting with the resumed ones
+			final SampleMapWriter sampleWriter = settings.outputAllSamples
+					? new SampleMapWriter(settings.getAllSamplesFilePath(), varNames)
+					: null;
+			try {
+				if (checkpoint != null) {
+					firstSample = Math.min(checkpoint.getEndSample(), endSample);
+					for (int k = checkpoint.getFirstSample(); k < firstSample; k++) {
+						SemanticMapLinks links = checkpoint.getSampleMap(k);
+						CausalGraph semanticMap = links.toGraph(varNames);
+						sampleSummary.addGraph(semanticMap);
+						if (trackMinimalMap) {
+							minimalMapTracker.replay(k, semanticMap);
+						}
+						if (frequencyMonitor != null) {
+							frequencyMonitor.add(links);
+						}
+						if (sampleWriter != null) {
+							final int sampleIndex = k;
+							output.submit(() -> sampleWriter.write(sampleIndex, links));
+						}
+					}
+					int numResumed = firstSample - checkpoint.getFirstSample();
+					if (numResumed > 0) {
+						textOutput.println("Resuming from checkpoint " + checkpointFilePath + " after " + numResumed
+								+ " samples.");
+					}
+					if (metrics != null) {
+						metrics.setCount("resumedSamples", numResumed);
+					}
+				}
+				numSamples = executor.run(firstSample, endSample, k -> {
+					SplittableRandom random = SampleRandom.forSample(baseSeed, k);
+					if (minimizer != null) {
+						return minimizer.run(k, random, metrics);
+					}
+					List<Set<Set<Triple<String, String, String>>>> sample = samplePartitions;
+					int[] multiplicities = allLanguages;
+					if (resample) {
+						int[] languages = languagePartitions.resample(random);
+						sample = languagePartitions.samplePartitions(languages);
+						multiplicities = languagePartitions.multiplicities(languages);
+					}
+					return pcStar.infer(sample, multiplicities, randomOrder ? random : null, metrics);
+				}, (k, semanticMap) -> {
+					// aborted minimization runs have no map
+					if (semanticMap == null)
+						return;
+					sampleSummary.addGraph(semanticMap);
+					if (trackMinimalMap) {
+						minimalMapTracker.offer(k, semanticMap);
+					}
+					if (frequencyMonitor != null || checkpoint != null || sampleWriter != null) {
+						SemanticMapLinks links = SemanticMapLinks.fromGraph(semanticMap, varNames, arrows);
+						if (frequencyMonitor != null) {
+							frequencyMonitor.add(links);
+						}
+						if (checkpoint != null) {
+							checkpoint.add(links);
+							if ((k + 1) % checkpointInterval == 0) {
+								writeCheckpoint(checkpoint, checkpointFilePath);
+							}
+						}
+						if (sampleWriter != null) {
+							output.submit(() -> sampleWriter.write(k, links));
+						}
+					}
+				}, maxStandardError <= 0.0 ? null : numConsumed -> {
+					if (numConsumed < ADAPTIVE_MIN_SAMPLES || numConsumed % ADAPTIVE_CHECK_INTERVAL != 0)
+						return false;
+					double standardError = frequencyMonitor.getMaxStandardError();
+					if (standardError < maxStandardError) {
+						textOutput.println("Frequencies converged after " + numConsumed
+								+ " samples (maximal standard error: " + standardError + ").");
+						return true;
+					}
+					return false;
+				});
+				if (checkpoint != null) {
+					writeCheckpoint(checkpoint, checkpointFilePath);
+				}
+			} finally {
+				if (sampleWriter != null) {
+					output.closeWhenDone(sampleWriter);
 				}
-				randomLinkProcessingOrder = true;
 			}
-
-			if (cmd.hasOption("d")) {
-				System.out.println("Will apply arrow inference in order to derive a diachronic semantic map.");
-				directionality = true;
+			if (settings.numShards > 0) {
+				numSamples -= settings.getFirstShardSample();
+				textOutput.println("Wrote the maps of " + numSamples + " samples to shard file " + checkpointFilePath
+						+ ", merge all shards to obtain the results.");
 			}
-
-			if (cmd.hasOption("c")) {
-				conceptFilePath = cmd.getOptionValue("concepts");
-				System.out.println("Analysis is limited to concepts specified in file: " + conceptFilePath);
+			if (maxStandardError > 0.0 && frequencyMonitor.getMaxStandardError() >= maxStandardError) {
+				textOutput.println("WARNING: frequencies did not converge within " + numSamples
+						+ " samples (maximal standard error: " + frequencyMonitor.getMaxStandardError() + ").");
+			}
+			if (minimizer != null) {
+				textOutput.println("Aborted " + minimizer.getNumAborted() + " of " + numSamples
+						+ " runs which could not yield a map smaller than " + minimizer.getMinMapSize()
+						+ " links, the consensus only covers the completed runs.");
+				if (metrics != null) {
+					metrics.setCount("abortedRuns", minimizer.getNumAborted());
+				}
 			}
+			if (metrics != null) {
+				metrics.addTime(InferenceMetrics.SAMPLING, startTime);
+				startTime = System.nanoTime();
+			}
+		}
 
-			if (cmd.hasOption("lt")) {
-				linkThreshold = Double.parseDouble(cmd.getOptionValue("linkThreshold"));
-				System.out.println("Will require at least " + linkThreshold
-						+ " colexifications for a link (to correct for noisy input data).");
+		// print and output minimal map
+		if (settings.minimizeSize && settings.numShards == 0) {
+			CausalGraph minimalMap = minimalMapTracker.getMinimalMap();
+			outputMinimalMap(minimalMapTracker, varNames, settings.directionality, numSamples, outputFilePath,
+					coordinates, output, textOutput);
+			if (settings.jsonOutput) {
+				output.writeFile(outputFilePath + "-minimal-map.json", out -> JsonOutput.writeMap(
+						SemanticMapLinks.fromGraph(minimalMap, varNames, settings.directionality), varNames, out));
 			}
+		}
 
-			if (cmd.hasOption("gt")) {
-				gapThreshold = Integer.parseInt(cmd.getOptionValue("gapThreshold"));
-				System.out.println("Will discard data from languages with more than " + gapThreshold
-						+ " relevant concepts missing.");
+		// print and output summary in case numSamples > 1 (for pruned minimization, the
+		// summary covers the completed runs, which depend on the order in which the runs
+		// finished if there are several threads)
+		if (numSamples > 1 && settings.numShards == 0) {
+			int numRuns = minimizer == null ? numSamples : numSamples - minimizer.getNumAborted();
+			outputConsensus(sampleSummary, frequencyMonitor, varNames, numRuns, outputFilePath, coordinates,
+					output, textOutput);
+			if (settings.jsonOutput) {
+				output.writeFile(outputFilePath + "-consensus.json",
+						out -> JsonOutput.writeConsensus(frequencyMonitor, varNames, out));
 			}
+		}
+		// wait for the files to be written
+		output.close();
+
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.OUTPUT, startTime);
+			metrics.setCount("samples", numSamples);
+			if (connectivity != null) {
+				metrics.setCount("cacheHits", connectivity.getCacheHits());
+				metrics.setCount("cacheMisses", connectivity.getCacheMisses());
+			}
+		}
+	}
 
-			Set<IsolecticArea> isolecticAreas = IsolecticAreaReader.loadFromFile(inputFilePath);
+	// the ids of the languages kept by the gap threshold; the per-language lines of
+	// the coverage report are only printed on request
+	private static int[] selectLanguagesWithFewGaps(LanguagePartitions partitions, int gapThreshold,
+			boolean gapDetails, PrintStream textOutput) {
+		LanguageCoverage coverage = new LanguageCoverage(partitions);
+		if (gapDetails) {
+			coverage.printReport(textOutput, gapThreshold);
+		}
+		int[] keptLanguages = coverage.getKeptLanguages(gapThreshold);
+		System.err.println("Kept " + keptLanguages.length + " of " + coverage.getNumLanguages()
+				+ " languages with at most " + gapThreshold + " gaps.");
+		return keptLanguages;
+	}
 
-			// if no concept file was provided, select all concepts which occur in a certain
-			// number of isolectic sets (default: 0, i.e. no filtering)
-			if (conceptFilePath == null) {
-				IsolecticAreaProcessing.filterConceptsByMinOccurrence(concepts, isolecticAreas, minConceptOccurrences);
-			} else {
-				concepts.addAll(ListReader.listFromFile(conceptFilePath));
-			}
-
-			// load coordinates from the specified file (-vo argument)
-			Map<String, Point2D.Double> coordinates = new TreeMap<String, Point2D.Double>();
-			if (coordinatesFilePath != null) {
-				List<String[]> entries = ListReader.arrayFromTSV(coordinatesFilePath);
-				for (String[] entry : entries) {
-					if (entry.length < 3)
-						continue;
-					coordinates.put(entry[0],
-							new Point2D.Double(Double.parseDouble(entry[1]), Double.parseDouble(entry[2])));
+	// the pair counts of all languages: read from the pair count file of the settings
+	// if it was computed from the same input, concepts and languages, and otherwise
+	// computed (and stored in the pair count file, if there is one); the input must
+	// have the same length and modification time, and the same checksum over the
+	// whole file, which is only computed if the rest matches
+	private static PairCountMatrix loadPairCounts(InferenceSettings settings, LanguagePartitions allLanguages,
+			PrintStream textOutput) throws IOException {
+		String pairCountFilePath = settings.pairCountFilePath;
+		long inputLength = 0L;
+		long inputModified = 0L;
+		Long inputChecksum = null;
+		if (pairCountFilePath != null) {
+			File inputFile = new File(settings.inputFilePath);
+			inputLength = inputFile.length();
+			inputModified = inputFile.lastModified();
+			if (new File(pairCountFilePath).exists()) {
+				PairCountMatrix stored = PairCountMatrix.readFromFile(pairCountFilePath);
+				if (stored.getInputLength() == inputLength && stored.getInputModified() == inputModified
+						&& Arrays.equals(stored.getConcepts(), allLanguages.getConcepts())
+						&& Arrays.equals(stored.getLanguages(), allLanguages.getLanguages())) {
+					inputChecksum = IsolecticAreaReader.fileChecksum(settings.inputFilePath);
+					if (stored.getInputChecksum() == inputChecksum) {
+						textOutput.println("Read pair counts from " + pairCountFilePath);
+						return stored;
+					}
 				}
+				textOutput.println("Pair count file " + pairCountFilePath
+						+ " belongs to a different input or selection, computing the counts again.");
+			}
+		}
+		PairCountMatrix pairCounts = PairCountMatrix.fromLanguagePartitions(allLanguages);
+		if (pairCountFilePath != null) {
+			if (inputChecksum == null) {
+				inputChecksum = IsolecticAreaReader.fileChecksum(settings.inputFilePath);
 			}
+			pairCounts.setInput(inputLength, inputModified, inputChecksum);
+			pairCounts.writeToFile(pairCountFilePath);
+		}
+		return pairCounts;
+	}
 
-			// selected/filtered concepts are the variables for causal inference
-			String[] varNames = createVarNames(concepts);
+	static void outputMinimalMap(MinimalMapTracker minimalMapTracker, int numSamples, String outputFilePath,
+			Map<String, Point2D.Double> coordinates) throws IOException {
+		try (AsyncOutputWriter output = new AsyncOutputWriter()) {
+			outputMinimalMap(minimalMapTracker, null, false, numSamples, outputFilePath, coordinates, output,
+					System.out);
+		}
+	}
 
-			List<Set<Set<Triple<String, String, String>>>> samplePartitions = null;
-			if (gapThreshold == -1) {
-				samplePartitions = IsolecticAreaProcessing.isolecticAreasToSamplePartitions(isolecticAreas);
-			} else {
-				samplePartitions = IsolecticAreaProcessing.isolecticAreasToCompleteSamplePartitions(isolecticAreas,
-						concepts, gapThreshold);
-			}
-			System.err.println("Extracted isolectic sets from " + samplePartitions.size() + " languages.");
+	// the text is printed right away (in order with the other textual output), the
+	// DOT file is queued; the sample index identifies the run in the sample map file
+	// (-a), and with a seed, it reproduces the run
+	static void outputMinimalMap(MinimalMapTracker minimalMapTracker, String[] varNames, boolean directionality,
+			int numSamples, String outputFilePath, Map<String, Point2D.Double> coordinates,
+			AsyncOutputWriter output, PrintStream textOutput) {
+		CausalGraph minimalMap = minimalMapTracker.getMinimalMap();
+		textOutput.println("\nMINIMAL MAP (among " + numSamples + " runs)");
+		textOutput.println("==============================\n");
+		textOutput.println("Found in sample " + minimalMapTracker.getMinMapSample() + " with "
+				+ minimalMapTracker.getMinMapSize() + " links.\n");
+		printMap(minimalMap, varNames, directionality, textOutput);
+		if (outputFilePath != null) {
+			output.writeFile(outputFilePath + "-minimal-map.dot",
+					out -> CausalGraphOutput.outputToDotFormat(minimalMap, out, coordinates, 50));
+		}
+	}
 
-			CausalGraphSummary sampleSummary = new CausalGraphSummary(varNames);
+	static void outputConsensus(CausalGraphSummary sampleSummary, int numSamples, String outputFilePath,
+			Map<String, Point2D.Double> coordinates) throws IOException {
+		try (AsyncOutputWriter output = new AsyncOutputWriter()) {
+			outputConsensus(sampleSummary, null, null, numSamples, outputFilePath, coordinates, output, System.out);
+		}
+	}
 
-			int minMapSize = Integer.MAX_VALUE;
-			CausalGraph minimalMap = null;
+	static void outputConsensus(CausalGraphSummary sampleSummary, LinkFrequencyMonitor frequencyMonitor,
+			String[] varNames, int numSamples, String outputFilePath, Map<String, Point2D.Double> coordinates,
+			AsyncOutputWriter output, PrintStream textOutput) {
+		textOutput.println("\nSEMANTIC MAP CONSENSUS (based on " + numSamples + " runs)");
+		textOutput.println("============================================\n");
+		printConsensus(sampleSummary, frequencyMonitor, varNames, textOutput);
+		if (outputFilePath != null) {
+			output.writeFile(outputFilePath + "-consensus.dot",
+					out -> CausalGraphOutput.outputToDotFormat(sampleSummary, out, coordinates, 0.25, 50));
+		}
+	}
+
+	// the causal library prints maps to standard output only, other streams get the
+	// links in the notation of SemanticMapLinks, one per line
+	private static void printMap(CausalGraph semanticMap, String[] varNames, boolean directionality,
+			PrintStream textOutput) {
+		if (textOutput == System.out) {
+			semanticMap.printInTextFormat();
+			return;
+		}
+		SemanticMapLinks links = SemanticMapLinks.fromGraph(semanticMap, varNames, directionality);
+		for (int i = 0; i < links.size(); i++) {
+			textOutput.println(varNames[links.getVar1(i)] + " " + SemanticMapLinks.typeSymbol(links.getType(i)) + " "
+					+ varNames[links.getVar2(i)]);
+		}
+	}
+
+	// as above, other streams get the link and arrowhead frequencies (see SummarizeSamples)
+	private static void printConsensus(CausalGraphSummary sampleSummary, LinkFrequencyMonitor frequencyMonitor,
+			String[] varNames, PrintStream textOutput) {
+		if (textOutput == System.out) {
+			sampleSummary.printInTextFormat();
+			return;
+		}
+		SummarizeSamples.printFrequencies(frequencyMonitor, varNames, textOutput);
+	}
+
+	// the checkpoint of the settings (null if there is none): the stored one if resuming
+	// from an existing file, and a new, empty one otherwise
+	private static SamplingCheckpoint openCheckpoint(InferenceSettings settings, String[] varNames,
+			int numLanguages) throws IOException {
+		if (settings.checkpointFilePath == null)
+			return null;
+		// the number of samples is left out, so that a finished run can also be extended
+		String runDescription = "engine=" + settings.engine + " bootstrap=" + settings.bootstrapping
+				+ " randomOrder=" + settings.randomLinkProcessingOrder + " minimize=" + settings.minimizeSize
+				+ " directionality=" + settings.directionality + " linkThreshold=" + settings.linkThreshold
+				+ " gapThreshold=" + settings.gapThreshold + " languages=" + numLanguages;
+		SamplingCheckpoint checkpoint;
+		if (!settings.resume || !new File(settings.checkpointFilePath).exists()) {
+			long baseSeed = settings.seed != null ? settings.seed : new SplittableRandom().nextLong();
+			checkpoint = new SamplingCheckpoint(runDescription, baseSeed, varNames, settings.getFirstShardSample());
+			checkpoint.setPlan(settings.shardIndex, settings.numShards, settings.getEndShardSample(),
+					settings.getNumSamples());
+			return checkpoint;
+		}
+		checkpoint = SamplingCheckpoint.readFromFile(settings.checkpointFilePath);
+		if (!checkpoint.getRunDescription().equals(runDescription)
+				|| !Arrays.equals(checkpoint.getVarNames(), varNames)
+				|| checkpoint.getFirstSample() != settings.getFirstShardSample()) {
+			throw new IOException("Checkpoint file " + settings.checkpointFilePath
+					+ " belongs to a different analysis (" + checkpoint.getRunDescription() + ").");
+		}
+		if (settings.seed != null && settings.seed != checkpoint.getBaseSeed()) {
+			throw new IOException("Checkpoint file " + settings.checkpointFilePath + " was written with seed "
+					+ checkpoint.getBaseSeed() + ", not " + settings.seed + ".");
+		}
+		// the number of samples may have changed
+		checkpoint.setPlan(settings.shardIndex, settings.numShards, settings.getEndShardSample(),
+				settings.getNumSamples());
+		return checkpoint;
+	}
+
+	private static void writeCheckpoint(SamplingCheckpoint checkpoint, String checkpointFilePath) {
+		try {
+			checkpoint.writeToFile(checkpointFilePath);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Set<String> loadLanguageFilter(InferenceSettings settings) throws IOException {
+		if (settings.languageFilePath == null)
+			return null;
+		return new TreeSet<String>(ListReader.listFromFile(settings.languageFilePath));
+	}
+
+	// if no concept file was provided, select all concepts which occur in a certain
+	// number of isolectic sets (default: 0, i.e. no filtering)
+	private static Set<String> selectConcepts(InferenceSettings settings, IsolecticAreaIndex index)
+			throws IOException {
+		Set<String> concepts = new TreeSet<String>();
+		if (settings.conceptSelection != null) {
+			concepts.addAll(settings.conceptSelection);
+		} else if (settings.conceptFilePath != null) {
+			concepts.addAll(ListReader.listFromFile(settings.conceptFilePath));
+		} else {
+			IsolecticAreaProcessing.filterConceptsByMinOccurrence(concepts, index, settings.minConceptOccurrences);
+		}
+		return concepts;
+	}
 
-			double[][] thresholds = new double[concepts.size()][concepts.size()];
-			for (double[] thresholdRow : thresholds) {
-				Arrays.fill(thresholdRow, linkThreshold);
+	// load coordinates from the specified file (-vc argument), if not null
+	static Map<String, Point2D.Double> loadCoordinates(String coordinatesFilePath) throws IOException {
+		Map<String, Point2D.Double> coordinates = new TreeMap<String, Point2D.Double>();
+		if (coordinatesFilePath != null) {
+			List<String[]> entries = ListReader.arrayFromTSV(coordinatesFilePath);
+			for (String[] entry : entries) {
+				if (entry.length < 3)
+					continue;
+				coordinates.put(entry[0], new Point2D.Double(Double.parseDouble(entry[1]), Double.parseDouble(entry[2])));
 			}
+		}
+		return coordinates;
+	}
 
-			for (int k = 0; k < numSamples; k++) {
-				List<Set<Set<Triple<String, String, String>>>> sample = samplePartitions;
-				if (bootstrapping) {
-					sample = resamplePartitionsLanguageLevel(samplePartitions);
-				}
+	// one table for all settings of the sweep, written to <outputPrefix>-sweep.tsv (or
+	// to standard output)
+	private static void runSweepWithOutput(InferenceSettings settings, IsolecticAreaIndex index,
+			SampleExecutor executor, InferenceMetrics metrics, PrintStream textOutput) throws IOException {
+		String[] varNames = createVarNames(selectConcepts(settings, index));
+		long startTime = System.nanoTime();
+		LanguagePartitions allLanguagePartitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(index,
+				loadLanguageFilter(settings), varNames, -1);
+		PairCountMatrix pairCounts = loadPairCounts(settings, allLanguagePartitions, textOutput);
+		InitialGraphTemplate initialGraph = InitialGraphTemplate.fromPairCounts(pairCounts);
+		AreaConnectivityCriterion connectivity = settings.engine.equals(InferenceSettings.ENGINE_CONNECTIVITY)
+				? new AreaConnectivityCriterion(allLanguagePartitions, settings.cacheMegabytes)
+				: null;
+		ThresholdSweep sweep = new ThresholdSweep(allLanguagePartitions, initialGraph, connectivity);
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.PARTITIONS, startTime);
+			metrics.setCount("concepts", varNames.length);
+			metrics.setCount("languages", allLanguagePartitions.getNumLanguages());
+			metrics.setCount("initialLinks", initialGraph.getNumLinks());
+			startTime = System.nanoTime();
+		}
 
-				CausalGraph semanticMap = new CausalGraph(varNames, false);
-				for (IsolecticArea area : isolecticAreas) {
-					for (String concept1 : area.getConcepts()) {
-						if (!concepts.contains(concept1))
-							continue;
-						int var1 = semanticMap.nameToVar.get(concept1);
-						for (String concept2 : area.getConcepts()) {
-							if (!concepts.contains(concept2))
-								continue;
-							int var2 = semanticMap.nameToVar.get(concept2);
-							if (var1 != var2) {
-								semanticMap.addLink(var1, var2);
-								semanticMap.putArrow(var1, var2, false);
-							}
-						}
-					}
+		int numSamples = settings.bootstrapping ? settings.numSamples : 1;
+		long seed = settings.seed != null ? settings.seed : new SplittableRandom().nextLong();
+		PrintStream out = settings.outputFilePath == null ? textOutput
+				: new PrintStream(new FileOutputStream(new File(settings.outputFilePath + "-sweep.tsv")), false,
+						"UTF-8");
+		try {
+			ThresholdSweep.printHeader(out);
+			for (int gapThreshold : settings.sweepGapThresholds) {
+				for (double linkThreshold : settings.sweepLinkThresholds) {
+					ThresholdSweep.Result result = sweep.run(linkThreshold, gapThreshold, numSamples, seed, executor,
+							metrics);
+					System.err.println("Link threshold " + linkThreshold + ", gap threshold " + gapThreshold + ": "
+							+ result.getNumLanguages() + " languages, mean map size " + result.getMeanMapSize()
+							+ ".");
+					sweep.print(result, out);
 				}
+			}
+		} finally {
+			if (out != textOutput) {
+				out.close();
+			}
+		}
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.SAMPLING, startTime);
+			metrics.setCount("settings", settings.sweepLinkThresholds.length * settings.sweepGapThresholds.length);
+			if (connectivity != null) {
+				metrics.setCount("cacheHits", connectivity.getCacheHits());
+				metrics.setCount("cacheMisses", connectivity.getCacheMisses());
+			}
+		}
+	}
 
-				// conditional independence criterion defined by discrete unit flow
-				// (implementing the connected component criterion for isolectic sets)
-				PartialCorrelationDiscreteUnitFlow corrMeasure = new PartialCorrelationDiscreteUnitFlow(sample,
-						semanticMap, varNames, thresholds, false);
-
-				// apply v-structure criteria from PC algorithm (stable and conservative
-				// variant)
-				CausalArrowFinder<List<Set<Set<Triple<String, String, String>>>>> arrowFinder = new CausalArrowFinderPcDefault<List<Set<Set<Triple<String, String, String>>>>>(
-						sample, varNames, true, true);
-
-				// run PC* algorithm to derive the semantic map (not assuming acyclicity)
-				PcStarAlgorithm pcInstance = new PcStarAlgorithm(corrMeasure, null, varNames, semanticMap,
-						concepts.size(), true, true, false, randomLinkProcessingOrder);
-				pcInstance.runSkeletonInference();
-				if (directionality) {
-					pcInstance.runDirectionalityInference();
-				} else {
-					semanticMap.convertCirclesToLines();
-				}
+	// loads the whole input file (or the areas of the concepts and languages selected by
+	// -c and -l), and serves requests until the process is stopped
+	private static void serve(InferenceSettings settings, int port, int numWorkers) throws IOException {
+		Set<String> conceptFilter = settings.conceptFilePath == null ? null
+				: new TreeSet<String>(ListReader.listFromFile(settings.conceptFilePath));
+		IsolecticAreaIndex index = IsolecticAreaReader.loadIndexFromFile(settings.inputFilePath, conceptFilter,
+				loadLanguageFilter(settings));
+		InferenceServer server = new InferenceServer(index, port, numWorkers, InferenceServer.DEFAULT_QUEUE_CAPACITY,
+				settings.numThreads);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		System.out.println("Loaded " + index.getNumAreas() + " isolectic areas, serving inference requests on http://"
+				+ InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/infer");
+		server.start();
+	}
 
-				if (numSamples == 1) {
-					System.out.println("\nRESULT:");
-					System.out.println("=======\n");
-					semanticMap.printInTextFormat();
-
-					// generate DOT file for visualizing the output (if specified)
-					if (outputFilePath != null) {
-						PrintStream out = new PrintStream(new FileOutputStream(new File(outputFilePath + "-map.dot")));
-						CausalGraphOutput.outputToDotFormat(semanticMap, out, coordinates, 50);
-						out.flush();
-						out.close();
-					}
-				} else {
-					sampleSummary.addGraph(semanticMap);
-				}
+	// each non-empty manifest line (lines starting with # are comments) specifies one job
+	// by the same options as a single run, minus the input file; options given on the
+	// command line together with -batch (except -log and -cp) apply to all jobs
+	private static List<InferenceSettings> readBatchManifest(String manifestFilePath, CommandLine batchCmd,
+			Options options) throws IOException, ParseException {
+		List<String> sharedArgs = new ArrayList<String>();
+		for (Option option : batchCmd.getOptions()) {
+			if (option.getOpt().equals("batch") || option.getOpt().equals("log") || option.getOpt().equals("cp")) {
+				continue;
+			}
+			sharedArgs.add("-" + option.getOpt());
+			if (option.hasArg()) {
+				sharedArgs.add(option.getValue());
+			}
+		}
 
-				if (minimizeSize) {
-					int mapSize = semanticMap.listAllLinks().size();
-					System.out.println("Map size: " + mapSize);
-					if (mapSize < minMapSize) {
-						System.out.println("Reached new smallest map size with " + mapSize + " links!");
-						minMapSize = mapSize;
-						minimalMap = semanticMap;
-					}
-				}
+		List<InferenceSettings> jobs = new ArrayList<InferenceSettings>();
+		CommandLineParser parser = new DefaultParser();
+		for (String line : ListReader.listFromFile(manifestFilePath)) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			// the job's own options come first, so that they take precedence
+			List<String> jobArgs = tokenizeManifestLine(line);
+			jobArgs.addAll(sharedArgs);
+			System.out.println("\nJOB " + (jobs.size() + 1) + ": " + line);
+			CommandLine jobCmd = parser.parse(options, jobArgs.toArray(new String[jobArgs.size()]));
+			if (jobCmd.hasOption("batch") || jobCmd.hasOption("wc")) {
+				throw new ParseException("Batch manifest jobs cannot use -batch or -wc: " + line);
 			}
+			jobs.add(InferenceSettings.fromCommandLine(jobCmd));
+		}
+		return jobs;
+	}
 
-			// print and output minimal map
-			if (minimizeSize) {
-				System.out.println("\nMINIMAL MAP (among " + numSamples + " runs)");
-				System.out.println("==============================\n");
-				minimalMap.printInTextFormat();
-				if (outputFilePath != null) {
-					PrintStream out = new PrintStream(
-							new FileOutputStream(new File(outputFilePath + "-minimal-map.dot")));
-					CausalGraphOutput.outputToDotFormat(minimalMap, out, coordinates, 50);
-					out.flush();
-					out.close();
+	// splits a manifest line at whitespace, keeping double-quoted arguments together
+	static List<String> tokenizeManifestLine(String line) {
+		List<String> tokens = new ArrayList<String>();
+		StringBuilder token = new StringBuilder();
+		boolean quoted = false;
+		boolean inToken = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+				inToken = true;
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (inToken) {
+					tokens.add(token.toString());
+					token.setLength(0);
+					inToken = false;
 				}
+			} else {
+				token.append(c);
+				inToken = true;
 			}
+		}
+		if (inToken) {
+			tokens.add(token.toString());
+		}
+		return tokens;
+	}
 
-			// print and output summary in case numSamples > 1
-			if (numSamples > 1) {
-				System.out.println("\nSEMANTIC MAP CONSENSUS (based on " + numSamples + " runs)");
-				System.out.println("============================================\n");
-				sampleSummary.printInTextFormat();
-				if (outputFilePath != null) {
-					PrintStream out = new PrintStream(
-							new FileOutputStream(new File(outputFilePath + "-consensus.dot")));
-					CausalGraphOutput.outputToDotFormat(sampleSummary, out, coordinates, 0.25, 50);
-					out.flush();
-					out.close();
+	// loads the input once (limited to the union of the jobs' concepts and languages),
+	// then runs the jobs one after the other, distributing the samples of each job over
+	// a worker pool shared by all jobs; a failing job is reported and skipped
+	private static boolean runBatch(InferenceSettings batchSettings, List<InferenceSettings> jobs)
+			throws IOException {
+		Set<String> conceptFilter = new TreeSet<String>();
+		Set<String> languageFilter = new TreeSet<String>();
+		for (InferenceSettings job : jobs) {
+			if (conceptFilter != null) {
+				if (job.conceptFilePath == null) {
+					conceptFilter = null;
+				} else {
+					conceptFilter.addAll(ListReader.listFromFile(job.conceptFilePath));
+				}
+			}
+			if (languageFilter != null) {
+				if (job.languageFilePath == null) {
+					languageFilter = null;
+				} else {
+					languageFilter.addAll(ListReader.listFromFile(job.languageFilePath));
 				}
 			}
-
-		} catch (ParseException e) {
-			System.out.println(e.getMessage());
-			helper.printHelp(" ", options);
-			System.exit(0);
-		} catch (IOException e) {
-			System.out.println(e.getMessage());
-			System.exit(1);
 		}
+		IsolecticAreaIndex index = IsolecticAreaReader.loadIndexFromFile(batchSettings.inputFilePath, conceptFilter,
+				languageFilter);
+		System.out.println("Loaded " + index.getNumAreas() + " isolectic areas for " + jobs.size() + " jobs.");
 
+		int numFailed = 0;
+		SampleExecutor executor = SampleExecutor.withSharedPool(batchSettings.numThreads);
+		try {
+			for (int jobID = 0; jobID < jobs.size(); jobID++) {
+				InferenceSettings job = jobs.get(jobID);
+				System.out.println("\nRUNNING JOB " + (jobID + 1) + " of " + jobs.size()
+						+ (job.logFilePath == null ? "" : " (output in " + job.logFilePath + ")"));
+				long startTime = System.currentTimeMillis();
+				try {
+					runInference(job, index, executor);
+					System.out.println("Job " + (jobID + 1) + " finished in "
+							+ (System.currentTimeMillis() - startTime) + " ms.");
+				} catch (IOException | RuntimeException e) {
+					System.out.println("Job " + (jobID + 1) + " failed: " + e);
+					numFailed++;
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		System.out.println("\nFinished " + (jobs.size() - numFailed) + " of " + jobs.size() + " jobs.");
+		return numFailed == 0;
 	}
 }
@@ -0,0 +1,115 @@
+package de.tuebingen.sfs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import de.tuebingen.sfs.causal.data.CausalGraphSummary;
+import de.tuebingen.sfs.inference.LinkFrequencyMonitor;
+import de.tuebingen.sfs.inference.SampleMapReader;
+import de.tuebingen.sfs.inference.SemanticMapLinks;
+
+// recomputes the consensus map and the link statistics from the sample map files
+// written by SemanticMapInference with -a (e.g. the files of several shards), reading
+// one sample map at a time
+public class SummarizeSamples {
+
+	private static Options defineOptions() {
+		Options options = new Options();
+
+		Option output = Option.builder("vo").longOpt("visOutput").argName("outputPrefix").hasArg().required(false)
+				.desc("Specify path and filename prefix for the visualized consensus map.").build();
+		options.addOption(output);
+
+		Option coordinates = Option.builder("vc").longOpt("coordinates").argName("coordFile").hasArg().required(false)
+				.desc("Specify coordinates for visualization output.").build();
+		options.addOption(coordinates);
+
+		Option frequencies = Option.builder("f").longOpt("frequencies").argName("frequencyFile").hasArg()
+				.required(false)
+				.desc("Write the link and arrowhead frequencies of all concept pairs to the given TSV file.").build();
+		options.addOption(frequencies);
+
+		return options;
+	}
+
+	public static void main(String[] args) {
+		Options options = defineOptions();
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter helper = new HelpFormatter();
+
+		try {
+			CommandLine cmd = parser.parse(options, args);
+			if (cmd.getArgList().isEmpty()) {
+				throw new ParseException("No sample map files specified.");
+			}
+			String[] varNames = null;
+			CausalGraphSummary sampleSummary = null;
+			LinkFrequencyMonitor frequencyMonitor = null;
+			for (String sampleFilePath : cmd.getArgList()) {
+				try (SampleMapReader reader = new SampleMapReader(sampleFilePath)) {
+					if (varNames == null) {
+						varNames = reader.getVarNames();
+						sampleSummary = new CausalGraphSummary(varNames);
+						frequencyMonitor = new LinkFrequencyMonitor(varNames.length);
+					} else if (!Arrays.equals(varNames, reader.getVarNames())) {
+						throw new IOException("Sample map file " + sampleFilePath + " has different concepts than "
+								+ cmd.getArgList().get(0) + ".");
+					}
+					SemanticMapLinks sampleMap;
+					while ((sampleMap = reader.next()) != null) {
+						sampleSummary.addGraph(sampleMap.toGraph(varNames));
+						frequencyMonitor.add(sampleMap);
+					}
+				}
+			}
+			int numSamples = frequencyMonitor.getNumSamples();
+			System.out.println("Read " + numSamples + " sample maps from " + cmd.getArgList().size() + " files.");
+
+			if (cmd.hasOption("f")) {
+				writeFrequencies(frequencyMonitor, varNames, cmd.getOptionValue("frequencies"));
+			}
+			SemanticMapInference.outputConsensus(sampleSummary, numSamples, cmd.getOptionValue("visOutput"),
+					SemanticMapInference.loadCoordinates(cmd.getOptionValue("coordinates")));
+		} catch (ParseException e) {
+			System.out.println(e.getMessage());
+			helper.printHelp("SummarizeSamples [options] sampleMapFile...", options);
+			System.exit(0);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// one line per concept pair linked in some sample: the link frequency, and the
+	// frequencies of arrowheads at either concept
+	static void writeFrequencies(LinkFrequencyMonitor frequencyMonitor, String[] varNames, String fileName)
+			throws IOException {
+		try (PrintStream out = new PrintStream(new FileOutputStream(new File(fileName)), false, "UTF-8")) {
+			printFrequencies(frequencyMonitor, varNames, out);
+		}
+	}
+
+	static void printFrequencies(LinkFrequencyMonitor frequencyMonitor, String[] varNames, PrintStream out) {
+		out.println("concept1\tconcept2\tlink\theadAt1\theadAt2");
+		for (int x = 0; x < varNames.length; x++) {
+			for (int y = x + 1; y < varNames.length; y++) {
+				double linkFrequency = frequencyMonitor.getLinkFrequency(x, y);
+				if (linkFrequency == 0.0)
+					continue;
+				out.println(varNames[x] + "\t" + varNames[y] + "\t" + linkFrequency + "\t"
+						+ frequencyMonitor.getArrowFrequency(y, x) + "\t" + frequencyMonitor.getArrowFrequency(x, y));
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package de.tuebingen.sfs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import de.tuebingen.sfs.causal.data.CausalGraphOutput;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaWriter;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+
+// generates synthetic isolectic areas from a random ground truth semantic map,
+// e.g. for load tests, or for checking whether inference recovers the map
+public class SyntheticDataGenerator {
+
+	private static Options defineOptions() {
+		Options options = new Options();
+
+		Option output = Option.builder("o").longOpt("output").argName("outputFile").hasArg().required(true)
+				.desc("Specify output file for the isolectic areas (input format of the inference).").build();
+		options.addOption(output);
+
+		Option mapOutput = Option.builder("mo").longOpt("mapOutput").argName("dotFile").hasArg().required(false)
+				.desc("Write the ground truth map in DOT format to the given file.").build();
+		options.addOption(mapOutput);
+
+		Option conceptOutput = Option.builder("co").longOpt("conceptOutput").argName("conceptFile").hasArg()
+				.required(false).desc("Write the list of concepts to the given file (usable as concept file).")
+				.build();
+		options.addOption(conceptOutput);
+
+		Option languages = Option.builder("nl").longOpt("numLanguages").argName("number").hasArg().required(false)
+				.desc("Specify number of languages. (default: 100)").build();
+		options.addOption(languages);
+
+		Option concepts = Option.builder("nc").longOpt("numConcepts").argName("number").hasArg().required(false)
+				.desc("Specify number of concepts. (default: 50)").build();
+		options.addOption(concepts);
+
+		Option extraLinks = Option.builder("el").longOpt("extraLinks").argName("number").hasArg().required(false)
+				.desc("Specify number of links in the ground truth map beyond a spanning tree. (default: 0)").build();
+		options.addOption(extraLinks);
+
+		Option areaSize = Option.builder("as").longOpt("meanAreaSize").argName("size").hasArg().required(false)
+				.desc("Specify mean number of concepts per isolectic area. (default: 2.0)").build();
+		options.addOption(areaSize);
+
+		Option maxAreaSize = Option.builder("ms").longOpt("maxAreaSize").argName("size").hasArg().required(false)
+				.desc("Specify maximal number of concepts per isolectic area. (default: 8)").build();
+		options.addOption(maxAreaSize);
+
+		Option gapRate = Option.builder("gr").longOpt("gapRate").argName("probability").hasArg().required(false)
+				.desc("Specify probability of a concept being missing from a language. (default: 0.0)").build();
+		options.addOption(gapRate);
+
+		Option noiseRate = Option.builder("nr").longOpt("noiseRate").argName("probability").hasArg().required(false)
+				.desc("Specify probability of an isolectic area containing an unconnected concept. (default: 0.0)")
+				.build();
+		options.addOption(noiseRate);
+
+		Option seed = Option.builder("seed").longOpt("randomSeed").argName("seed").hasArg().required(false)
+				.desc("Specify random seed. (default: 0)").build();
+		options.addOption(seed);
+
+		return options;
+	}
+
+	public static void main(String[] args) {
+		Options options = defineOptions();
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter helper = new HelpFormatter();
+
+		try {
+			CommandLine cmd = parser.parse(options, args);
+
+			int numLanguages = Integer.parseInt(cmd.getOptionValue("numLanguages", "100"));
+			int numConcepts = Integer.parseInt(cmd.getOptionValue("numConcepts", "50"));
+			int numExtraLinks = Integer.parseInt(cmd.getOptionValue("extraLinks", "0"));
+			SplittableRandom random = new SplittableRandom(Long.parseLong(cmd.getOptionValue("randomSeed", "0")));
+
+			IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(numConcepts, numExtraLinks,
+					random);
+			generator.setAreaSizes(Double.parseDouble(cmd.getOptionValue("meanAreaSize", "2.0")),
+					Integer.parseInt(cmd.getOptionValue("maxAreaSize", "8")));
+			generator.setGapRate(Double.parseDouble(cmd.getOptionValue("gapRate", "0.0")));
+			generator.setNoiseRate(Double.parseDouble(cmd.getOptionValue("noiseRate", "0.0")));
+			System.out.println("Generated ground truth map with " + numConcepts + " concepts and "
+					+ generator.getNumLinks() + " links.");
+
+			List<IsolecticArea> isolecticAreas = generator.generate(numLanguages, random);
+			IsolecticAreaWriter.writeToFile(isolecticAreas, cmd.getOptionValue("output"));
+			System.out.println("Wrote " + isolecticAreas.size() + " isolectic areas for " + numLanguages
+					+ " languages to file: " + cmd.getOptionValue("output"));
+
+			if (cmd.hasOption("co")) {
+				try (PrintStream out = new PrintStream(new FileOutputStream(cmd.getOptionValue("conceptOutput")),
+						false, "UTF-8")) {
+					for (String concept : generator.getConcepts()) {
+						out.println(concept);
+					}
+				}
+			}
+
+			if (cmd.hasOption("mo")) {
+				try (PrintStream out = new PrintStream(
+						new FileOutputStream(new File(cmd.getOptionValue("mapOutput"))))) {
+					CausalGraphOutput.outputToDotFormat(generator.toCausalGraph(), out, Collections.emptyMap(), 50);
+				}
+			}
+		} catch (ParseException e) {
+			System.out.println(e.getMessage());
+			helper.printHelp(" ", options);
+			System.exit(0);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
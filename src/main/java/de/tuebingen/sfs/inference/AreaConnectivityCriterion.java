@@ -0,0 +1,312 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+
+// the connected component criterion of the unit flow on int-encoded isolectic areas:
+// the flow of an area containing x and y is explained by a separating set Z if x and
+// y are connected within the area through concepts of Z, using the links of the
+// current map other than x-y; the dependence of x and y given Z is the number of
+// areas containing x and y where this is not the case
+//
+// for the empty set, this is the number of areas containing x and y, i.e. the link
+// strength of the unit flow criterion; the unit flow spreads the flow of an area
+// over all its paths, and only separates x and y if all of it passes through Z, so
+// that every separation found by the unit flow is also found here
+//
+// the links among x, Z and y are given as one row of bitmasks for x and each concept
+// of Z (in this order), over x, Z and y (with y as the last bit), without the link
+// x-y; within an area, the concepts of Z in the area and y are searched from x by
+// word operations on these rows
+//
+// the per-language contributions to the dependence only depend on x, y, Z and the
+// links among them, not on the sample, so they are computed once per test and kept
+// in a bounded cache; a test on a bootstrap sample then only weights them by the
+// language multiplicities
+//
+// every sample repeats the tests with small conditioning sets, while the tests with
+// larger sets depend more on the sample, so the cache evicts the tests with the
+// largest conditioning sets first (and the least recently used ones among these);
+// the cache is split into stripes by the hash of the test, each with its own lock
+// and an equal share of the memory, so that the sample threads rarely wait for each
+// other, and the eviction order only holds within each stripe
+public class AreaConnectivityCriterion {
+
+	// the cache is bounded by the approximate memory taken up by its entries
+	public static final int DEFAULT_CACHE_MEGABYTES = 256;
+	private static final long ENTRY_OVERHEAD_BYTES = 112;
+	private static final int NUM_STRIPES = 64;
+
+	final int numLanguages;
+	final int numConcepts;
+	final Map<String, Integer> conceptIDs;
+	// all areas, grouped by language in ascending order
+	final int[] areaLangs;
+	final int[][] areaConcepts;
+	// for each concept, the ids of the areas containing it (ascending)
+	final int[][] conceptAreas;
+
+	// null if no memory is given for caching
+	private final CacheStripe[] cache;
+	private final LongAdder cacheHits;
+	private final LongAdder cacheMisses;
+
+	public AreaConnectivityCriterion(LanguagePartitions partitions) {
+		this(partitions, DEFAULT_CACHE_MEGABYTES);
+	}
+
+	public AreaConnectivityCriterion(LanguagePartitions partitions, int cacheMegabytes) {
+		String[] concepts = partitions.getConcepts();
+		this.numLanguages = partitions.getNumLanguages();
+		this.numConcepts = concepts.length;
+		this.conceptIDs = new HashMap<String, Integer>();
+		for (int concept = 0; concept < numConcepts; concept++) {
+			conceptIDs.put(concepts[concept], concept);
+		}
+
+		List<int[]> areas = new ArrayList<int[]>();
+		List<Integer> langs = new ArrayList<Integer>();
+		int[] conceptCounts = new int[numConcepts];
+		for (int langID = 0; langID < numLanguages; langID++) {
+			for (int[] area : partitions.getAreas(langID)) {
+				areas.add(area);
+				langs.add(langID);
+				for (int concept : area) {
+					conceptCounts[concept]++;
+				}
+			}
+		}
+		this.areaConcepts = areas.toArray(new int[areas.size()][]);
+		this.areaLangs = langs.stream().mapToInt(Integer::intValue).toArray();
+		this.conceptAreas = new int[numConcepts][];
+		for (int concept = 0; concept < numConcepts; concept++) {
+			conceptAreas[concept] = new int[conceptCounts[concept]];
+		}
+		int[] fill = new int[numConcepts];
+		for (int areaID = 0; areaID < areaConcepts.length; areaID++) {
+			for (int concept : areaConcepts[areaID]) {
+				conceptAreas[concept][fill[concept]++] = areaID;
+			}
+		}
+
+		this.cache = cacheMegabytes > 0 ? new CacheStripe[NUM_STRIPES] : null;
+		for (int stripe = 0; cache != null && stripe < NUM_STRIPES; stripe++) {
+			cache[stripe] = new CacheStripe(((long) cacheMegabytes << 20) / NUM_STRIPES);
+		}
+		this.cacheHits = new LongAdder();
+		this.cacheMisses = new LongAdder();
+	}
+
+	public int getNumLanguages() {
+		return numLanguages;
+	}
+
+	// the id of the concept, or -1 if the areas do not cover it
+	public int getConceptID(String concept) {
+		Integer id = conceptIDs.get(concept);
+		return id == null ? -1 : id;
+	}
+
+	// the number of words of a bitmask row over x, a conditioning set of the given
+	// size, and y
+	public static int linkWords(int setSize) {
+		return (setSize + 2 + 63) >>> 6;
+	}
+
+	// the multiplicity-weighted number of areas in which x and y are not connected
+	// through z (x < y, z sorted, and not containing x or y)
+	public long dependence(int x, int y, int[] z, long[] links, int[] multiplicities) {
+		long dependence = 0;
+		for (int langID : getContributions(x, y, z, links)) {
+			dependence += multiplicities[langID];
+		}
+		return dependence;
+	}
+
+	// the languages of the areas in which x and y are not connected through z, in
+	// ascending order (a language occurs once per such area)
+	public int[] getContributions(int x, int y, int[] z, long[] links) {
+		if (cache == null)
+			return computeContributions(x, y, z, links);
+		TestKey key = new TestKey(x, y, z, links);
+		CacheStripe stripe = cache[(key.hash ^ (key.hash >>> 16)) & (NUM_STRIPES - 1)];
+		int[] contributions = stripe.get(key);
+		if (contributions != null) {
+			cacheHits.increment();
+			return contributions;
+		}
+		cacheMisses.increment();
+		contributions = computeContributions(x, y, z, links);
+		// the caller may reuse its arrays for the next test
+		stripe.put(new TestKey(x, y, z.clone(), links.clone()), contributions);
+		return contributions;
+	}
+
+	private static long entryBytes(TestKey key, int[] contributions) {
+		return ENTRY_OVERHEAD_BYTES + 4L * (key.z.length + contributions.length) + 8L * key.links.length;
+	}
+
+	int[] computeContributions(int x, int y, int[] z, long[] links) {
+		// iterate over the areas of the rarer concept
+		int[] candidateAreas = conceptAreas[x].length <= conceptAreas[y].length ? conceptAreas[x] : conceptAreas[y];
+		int other = candidateAreas == conceptAreas[x] ? y : x;
+		int words = linkWords(z.length);
+		long[] allowed = new long[words];
+		long[] reached = new long[words];
+		int[] stack = new int[z.length + 1];
+		int[] contributions = new int[8];
+		int size = 0;
+		for (int areaID : candidateAreas) {
+			int[] area = areaConcepts[areaID];
+			if (Arrays.binarySearch(area, other) < 0)
+				continue;
+			// the concepts of z in the area, and y, may be visited on the way from x
+			Arrays.fill(allowed, 0L);
+			setBit(allowed, z.length + 1);
+			for (int i = 0, j = 0; i < area.length && j < z.length;) {
+				if (area[i] < z[j]) {
+					i++;
+				} else if (area[i] > z[j]) {
+					j++;
+				} else {
+					setBit(allowed, j + 1);
+					i++;
+					j++;
+				}
+			}
+			if (connected(links, words, allowed, reached, stack))
+				continue;
+			if (size == contributions.length) {
+				contributions = Arrays.copyOf(contributions, 2 * size);
+			}
+			contributions[size++] = areaLangs[areaID];
+		}
+		return Arrays.copyOf(contributions, size);
+	}
+
+	// whether y (the last allowed bit) is reached from x (bit 0) through allowed bits
+	private static boolean connected(long[] links, int words, long[] allowed, long[] reached, int[] stack) {
+		int target = stack.length;
+		Arrays.fill(reached, 0L);
+		reached[0] = 1L;
+		stack[0] = 0;
+		int size = 1;
+		while (size > 0) {
+			int row = stack[--size] * words;
+			for (int word = 0; word < words; word++) {
+				long next = links[row + word] & allowed[word] & ~reached[word];
+				reached[word] |= next;
+				while (next != 0) {
+					int node = (word << 6) + Long.numberOfTrailingZeros(next);
+					if (node == target)
+						return true;
+					stack[size++] = node;
+					next &= next - 1;
+				}
+			}
+		}
+		return false;
+	}
+
+	static void setBit(long[] mask, int bit) {
+		mask[bit >>> 6] |= 1L << bit;
+	}
+
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	public int getCacheSize() {
+		int size = 0;
+		for (int stripe = 0; cache != null && stripe < NUM_STRIPES; stripe++) {
+			size += cache[stripe].size();
+		}
+		return size;
+	}
+
+	// one LRU map per conditioning set size
+	private static final class CacheStripe {
+
+		private final List<LinkedHashMap<TestKey, int[]>> entries;
+		private final long capacityBytes;
+		private long bytes;
+
+		CacheStripe(long capacityBytes) {
+			this.entries = new ArrayList<LinkedHashMap<TestKey, int[]>>();
+			this.capacityBytes = capacityBytes;
+			this.bytes = 0;
+		}
+
+		synchronized int[] get(TestKey key) {
+			return key.z.length < entries.size() ? entries.get(key.z.length).get(key) : null;
+		}
+
+		synchronized void put(TestKey key, int[] contributions) {
+			while (entries.size() <= key.z.length) {
+				// in access order, i.e. starting with the least recently used entry
+				entries.add(new LinkedHashMap<TestKey, int[]>(16, 0.75f, true));
+			}
+			if (entries.get(key.z.length).put(key, contributions) != null)
+				return;
+			bytes += entryBytes(key, contributions);
+			for (int setSize = entries.size() - 1; setSize >= 0 && bytes > capacityBytes; setSize--) {
+				Iterator<Map.Entry<TestKey, int[]>> iterator = entries.get(setSize).entrySet().iterator();
+				while (bytes > capacityBytes && iterator.hasNext()) {
+					Map.Entry<TestKey, int[]> eldest = iterator.next();
+					bytes -= entryBytes(eldest.getKey(), eldest.getValue());
+					iterator.remove();
+				}
+			}
+		}
+
+		synchronized int size() {
+			int size = 0;
+			for (Map<TestKey, int[]> sizeEntries : entries) {
+				size += sizeEntries.size();
+			}
+			return size;
+		}
+	}
+
+	// a test (x, y, Z) together with the links among x, Z and y
+	static final class TestKey {
+		final int x;
+		final int y;
+		final int[] z;
+		final long[] links;
+		final int hash;
+
+		TestKey(int x, int y, int[] z, long[] links) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.links = links;
+			this.hash = 31 * (31 * (31 * x + y) + Arrays.hashCode(z)) + Arrays.hashCode(links);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof TestKey))
+				return false;
+			TestKey other = (TestKey) o;
+			return x == other.x && y == other.y && Arrays.equals(z, other.z) && Arrays.equals(links, other.links);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// writes output files on a background thread, so that inference does not wait for
+// the disk: the writing tasks are executed one after the other in the order of
+// submission (e.g. the maps of consecutive samples to one file), and the bounded
+// queue of pending tasks limits the memory held by maps which are not written yet;
+// close() waits until all files are written, and reports the first failure
+public class AsyncOutputWriter implements Closeable {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	public interface OutputTask {
+		void write() throws IOException;
+	}
+
+	public interface FileContent {
+		void writeTo(PrintStream out) throws IOException;
+	}
+
+	private static final OutputTask END = () -> {
+	};
+
+	private final BlockingQueue<OutputTask> queue;
+	private final Thread thread;
+	private volatile IOException failure;
+	private boolean closed;
+
+	public AsyncOutputWriter() {
+		this(DEFAULT_QUEUE_CAPACITY);
+	}
+
+	public AsyncOutputWriter(int queueCapacity) {
+		this.queue = new ArrayBlockingQueue<OutputTask>(queueCapacity);
+		this.thread = new Thread(this::writeAll, "output-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// queues the task (waiting only if the queue is full), or fails if an earlier
+	// task has failed, so that a run does not continue without its output
+	public void submit(OutputTask task) {
+		if (failure != null) {
+			throw new UncheckedIOException("Writing output failed.", failure);
+		}
+		put(task);
+	}
+
+	// queues writing a file with a buffered UTF-8 stream; the content must not change
+	// after submission (e.g. the final map of a run)
+	public void writeFile(String fileName, FileContent content) {
+		submit(() -> {
+			try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName)),
+					1 << 16), false, "UTF-8")) {
+				content.writeTo(out);
+				if (out.checkError()) {
+					throw new IOException("Could not write " + fileName + ".");
+				}
+			}
+		});
+	}
+
+	// queues closing the stream after the tasks submitted so far, even after a failure
+	public void closeWhenDone(Closeable stream) {
+		put(stream::close);
+	}
+
+	// only the first call waits and reports a failure
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		put(END);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for output to be written.", e);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void put(OutputTask task) {
+		try {
+			queue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while queueing output.", e);
+		}
+	}
+
+	// after a failure, the remaining tasks are still run, so that all streams get closed
+	private void writeAll() {
+		while (true) {
+			OutputTask task;
+			try {
+				task = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (task == END)
+				return;
+			try {
+				task.write();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = new IOException(e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.util.struct.Triple;
+
+// the independence test of PC* on the area connectivity criterion instead of the
+// unit flow, for a sample given by its language multiplicities; the links among x, Z
+// and y are read from the graph which PC* works on, whose variables may come in any
+// order (they are mapped to the concepts of the criterion by name)
+public class ConnectivityUnitFlow extends CountingUnitFlow {
+
+	private final double[][] thresholds;
+	private final AreaConnectivityCriterion criterion;
+	private final int[] multiplicities;
+	// the concept id of each variable of the graph
+	private final int[] varConcepts;
+
+	public ConnectivityUnitFlow(List<Set<Set<Triple<String, String, String>>>> sample, CausalGraph graph,
+			String[] varNames, double[][] thresholds, AreaConnectivityCriterion criterion, int[] multiplicities,
+			InferenceMetrics metrics) {
+		super(sample, graph, varNames, thresholds, metrics);
+		this.thresholds = thresholds;
+		this.criterion = criterion;
+		this.multiplicities = multiplicities;
+		this.varConcepts = new int[varNames.length];
+		for (int var = 0; var < varNames.length; var++) {
+			varConcepts[var] = criterion.getConceptID(varNames[var]);
+		}
+	}
+
+	@Override
+	protected boolean separated(int xVar, int yVar, Set<Integer> zVars) {
+		if (varConcepts[xVar] > varConcepts[yVar]) {
+			int swap = xVar;
+			xVar = yVar;
+			yVar = swap;
+		}
+		// the conditioning concepts in ascending order, each with its variable in the
+		// lower bits
+		long[] conditioning = new long[zVars.size()];
+		int i = 0;
+		for (int zVar : zVars) {
+			conditioning[i++] = ((long) varConcepts[zVar] << 32) | zVar;
+		}
+		Arrays.sort(conditioning);
+		int[] z = new int[conditioning.length];
+		int[] nodeVars = new int[z.length + 2];
+		nodeVars[0] = xVar;
+		for (i = 0; i < z.length; i++) {
+			z[i] = (int) (conditioning[i] >>> 32);
+			nodeVars[i + 1] = (int) conditioning[i];
+		}
+		nodeVars[z.length + 1] = yVar;
+
+		int words = AreaConnectivityCriterion.linkWords(z.length);
+		long[] links = new long[(z.length + 1) * words];
+		for (int node = 0; node <= z.length; node++) {
+			for (int other = 1; other < nodeVars.length; other++) {
+				if (other == node || (node == 0 && other == z.length + 1))
+					continue;
+				if (graph.hasLink(nodeVars[node], nodeVars[other])) {
+					links[node * words + (other >>> 6)] |= 1L << other;
+				}
+			}
+		}
+		long dependence = criterion.dependence(varConcepts[xVar], varConcepts[yVar], z, links, multiplicities);
+		return dependence == 0 || dependence < thresholds[xVar][yVar];
+	}
+}
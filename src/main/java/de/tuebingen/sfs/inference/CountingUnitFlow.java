@@ -0,0 +1,112 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.causal.heuristics.separation.PartialCorrelationDiscreteUnitFlow;
+import de.tuebingen.sfs.util.struct.Triple;
+
+// the unit flow criterion of PC*, reporting each independence test to the metrics
+// (if given); PC* tests the separating set candidates of a pair one after the other,
+// so a test of another pair or set size starts a new attempt; an instance serves one
+// sample (i.e. one thread), and subclasses may replace the criterion
+//
+// with a bound on the map size, the run is aborted (by a MapSizeExceededException)
+// as soon as more links than that can no longer be removed: PC* draws the separating
+// sets of x and y from their other neighbours, so once the set size reaches s, a link
+// whose endpoints have fewer than s other neighbours stays in the map
+public class CountingUnitFlow extends PartialCorrelationDiscreteUnitFlow {
+
+	protected final CausalGraph graph;
+	private final int numVars;
+	private final InferenceMetrics metrics;
+	private int lastX = -1;
+	private int lastY = -1;
+	private int lastSetSize = -1;
+	private IntSupplier maxMapSize = null;
+	private int boundSetSize = 0;
+
+	public CountingUnitFlow(List<Set<Set<Triple<String, String, String>>>> sample, CausalGraph graph,
+			String[] varNames, double[][] thresholds, InferenceMetrics metrics) {
+		super(sample, graph, varNames, thresholds, false);
+		this.graph = graph;
+		this.numVars = varNames.length;
+		this.metrics = metrics;
+	}
+
+	// the bound on the map size (null for none), checked whenever the set size grows
+	public void setMaxMapSize(IntSupplier maxMapSize) {
+		this.maxMapSize = maxMapSize;
+	}
+
+	@Override
+	public boolean independenceTest(int xVar, int yVar, Set<Integer> zVars) {
+		if (maxMapSize != null && zVars.size() > boundSetSize) {
+			boundSetSize = zVars.size();
+			if (countFinalLinks(boundSetSize) > maxMapSize.getAsInt())
+				throw new MapSizeExceededException();
+		}
+		boolean separated = separated(xVar, yVar, zVars);
+		if (metrics == null)
+			return separated;
+		int x = Math.min(xVar, yVar);
+		int y = Math.max(xVar, yVar);
+		boolean newAttempt = x != lastX || y != lastY || zVars.size() != lastSetSize;
+		lastX = x;
+		lastY = y;
+		lastSetSize = zVars.size();
+		metrics.recordTest(zVars.size(), newAttempt, separated);
+		return separated;
+	}
+
+	protected boolean separated(int xVar, int yVar, Set<Integer> zVars) {
+		return super.independenceTest(xVar, yVar, zVars);
+	}
+
+	// the number of links of the graph whose endpoints have fewer than setSize other
+	// neighbours (counting common neighbours once)
+	int countFinalLinks(int setSize) {
+		boolean[][] adjacent = new boolean[numVars][numVars];
+		int[] degrees = new int[numVars];
+		for (int x = 0; x < numVars; x++) {
+			for (int y = x + 1; y < numVars; y++) {
+				if (graph.hasLink(x, y)) {
+					adjacent[x][y] = true;
+					adjacent[y][x] = true;
+					degrees[x]++;
+					degrees[y]++;
+				}
+			}
+		}
+		int numFinal = 0;
+		for (int x = 0; x < numVars; x++) {
+			for (int y = x + 1; y < numVars; y++) {
+				if (!adjacent[x][y])
+					continue;
+				int numNeighbours = degrees[x] + degrees[y] - 2;
+				for (int v = 0; v < numVars && numNeighbours >= setSize; v++) {
+					if (adjacent[x][v] && adjacent[y][v]) {
+						numNeighbours--;
+					}
+				}
+				if (numNeighbours < setSize) {
+					numFinal++;
+				}
+			}
+		}
+		return numFinal;
+	}
+
+	// thrown by the independence test to abort a run which exceeds the bound on the
+	// map size (without a stack trace, as it is expected)
+	static class MapSizeExceededException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		MapSizeExceededException() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// collects wall times per phase of an inference run and counts the conditional
+// independence tests of the PC* skeleton phase per separating set size; the
+// phases within a sample are summed over all samples (i.e. over all threads)
+public class InferenceMetrics {
+
+	public static final String LOAD = "load";
+	public static final String PARTITIONS = "partitions";
+	public static final String SEEDING = "seeding";
+	public static final String SAMPLING = "sampling";
+	public static final String SKELETON = "skeleton";
+	public static final String DIRECTIONALITY = "directionality";
+	public static final String OUTPUT = "output";
+
+	private static final String[] PHASES = { LOAD, PARTITIONS, SEEDING, SAMPLING, SKELETON, DIRECTIONALITY, OUTPUT };
+
+	private final Map<String, LongAdder> phaseNanos;
+	private final Map<String, Long> counts;
+
+	// per separating set size: pairs for which separation was attempted, separating
+	// set candidates formed (i.e. tests issued) for them, and successful tests
+	private final ConcurrentSkipListMap<Integer, LongAdder> pairsAttempted;
+	private final ConcurrentSkipListMap<Integer, LongAdder> candidatesFormed;
+	private final ConcurrentSkipListMap<Integer, LongAdder> successfulTests;
+
+	public InferenceMetrics() {
+		phaseNanos = new LinkedHashMap<String, LongAdder>();
+		for (String phase : PHASES) {
+			phaseNanos.put(phase, new LongAdder());
+		}
+		counts = new LinkedHashMap<String, Long>();
+		pairsAttempted = new ConcurrentSkipListMap<Integer, LongAdder>();
+		candidatesFormed = new ConcurrentSkipListMap<Integer, LongAdder>();
+		successfulTests = new ConcurrentSkipListMap<Integer, LongAdder>();
+	}
+
+	public void addTime(String phase, long startNanos) {
+		phaseNanos.get(phase).add(System.nanoTime() - startNanos);
+	}
+
+	public long getTimeMillis(String phase) {
+		return phaseNanos.get(phase).sum() / 1000000;
+	}
+
+	// further figures describing the run, such as the number of samples
+	public synchronized void setCount(String name, long value) {
+		counts.put(name, value);
+	}
+
+	public long getNumPairsAttempted(int setSize) {
+		return sum(pairsAttempted, setSize);
+	}
+
+	public long getNumCandidatesFormed(int setSize) {
+		return sum(candidatesFormed, setSize);
+	}
+
+	public long getNumSuccessfulTests(int setSize) {
+		return sum(successfulTests, setSize);
+	}
+
+	// for skeleton searches which report the tests for a pair at once
+	public void recordTests(int setSize, int numTests, boolean separated) {
+		increment(pairsAttempted, setSize, 1);
+		increment(candidatesFormed, setSize, numTests);
+		if (separated) {
+			increment(successfulTests, setSize, 1);
+		}
+	}
+
+	// for skeleton searches which report each test on its own (see CountingUnitFlow),
+	// stating whether it starts the attempt to separate another pair
+	public void recordTest(int setSize, boolean newAttempt, boolean separated) {
+		if (newAttempt) {
+			increment(pairsAttempted, setSize, 1);
+		}
+		increment(candidatesFormed, setSize, 1);
+		if (separated) {
+			increment(successfulTests, setSize, 1);
+		}
+	}
+
+	private static void increment(ConcurrentSkipListMap<Integer, LongAdder> counter, int setSize, long value) {
+		counter.computeIfAbsent(setSize, size -> new LongAdder()).add(value);
+	}
+
+	private static long sum(ConcurrentSkipListMap<Integer, LongAdder> counter, int setSize) {
+		LongAdder adder = counter.get(setSize);
+		return adder == null ? 0 : adder.sum();
+	}
+
+	// writes CSV if the file name ends in .csv, and JSON otherwise
+	public void writeToFile(String fileName) throws IOException {
+		try (PrintStream out = new PrintStream(new FileOutputStream(fileName), false, "UTF-8")) {
+			if (fileName.endsWith(".csv")) {
+				writeCsv(out);
+			} else {
+				writeJson(out);
+			}
+		}
+	}
+
+	public synchronized void writeCsv(PrintStream out) {
+		out.println("metric,setSize,value");
+		for (String phase : PHASES) {
+			out.println("time_ms_" + phase + ",," + getTimeMillis(phase));
+		}
+		for (Map.Entry<String, Long> count : counts.entrySet()) {
+			out.println(count.getKey() + ",," + count.getValue());
+		}
+		for (int setSize : pairsAttempted.keySet()) {
+			out.println("pairs_attempted," + setSize + "," + getNumPairsAttempted(setSize));
+			out.println("candidates_formed," + setSize + "," + getNumCandidatesFormed(setSize));
+			out.println("successful_tests," + setSize + "," + getNumSuccessfulTests(setSize));
+		}
+	}
+
+	public synchronized void writeJson(PrintStream out) {
+		out.println("{");
+		out.println("  \"timeMillis\": {");
+		for (int i = 0; i < PHASES.length; i++) {
+			out.println("    \"" + PHASES[i] + "\": " + getTimeMillis(PHASES[i]) + (i < PHASES.length - 1 ? "," : ""));
+		}
+		out.println("  },");
+		out.println("  \"counts\": {");
+		int i = 0;
+		for (Map.Entry<String, Long> count : counts.entrySet()) {
+			out.println("    \"" + count.getKey() + "\": " + count.getValue() + (++i < counts.size() ? "," : ""));
+		}
+		out.println("  },");
+		out.println("  \"independenceTests\": [");
+		i = 0;
+		for (int setSize : pairsAttempted.keySet()) {
+			out.println("    { \"setSize\": " + setSize + ", \"pairsAttempted\": " + getNumPairsAttempted(setSize)
+					+ ", \"candidatesFormed\": " + getNumCandidatesFormed(setSize) + ", \"successfulTests\": "
+					+ getNumSuccessfulTests(setSize) + " }" + (++i < pairsAttempted.size() ? "," : ""));
+		}
+		out.println("  ]");
+		out.println("}");
+	}
+}
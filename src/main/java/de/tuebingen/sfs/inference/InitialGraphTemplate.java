@@ -0,0 +1,69 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.BitSet;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+
+// the initial graph links every pair of selected concepts which are colexified in
+// some isolectic area; this does not depend on the sample, so the pairs are
+// computed once and each sample's graph is instantiated from them
+public class InitialGraphTemplate {
+
+	String[] varNames;
+	BitSet links;
+
+	private InitialGraphTemplate(String[] varNames, BitSet links) {
+		this.varNames = varNames;
+		this.links = links;
+	}
+
+	// the pairs with a nonzero count; all callers compute the pair counts anyway (for
+	// the unconditional tests), so the areas need not be visited again
+	public static InitialGraphTemplate fromPairCounts(PairCountMatrix pairCounts) {
+		String[] varNames = pairCounts.getConcepts();
+		int numVars = varNames.length;
+		BitSet links = new BitSet(numVars * numVars);
+		for (int x = 0; x < numVars; x++) {
+			for (int y = x + 1; y < numVars; y++) {
+				if (pairCounts.getCount(x, y) > 0) {
+					links.set(x * numVars + y);
+				}
+			}
+		}
+		return new InitialGraphTemplate(varNames, links);
+	}
+
+	public String[] getVarNames() {
+		return varNames;
+	}
+
+	public boolean hasLink(int var1, int var2) {
+		if (var1 > var2)
+			return hasLink(var2, var1);
+		return links.get(var1 * varNames.length + var2);
+	}
+
+	public int getNumLinks() {
+		return links.cardinality();
+	}
+
+	public CausalGraph instantiate() {
+		return instantiate(varNames);
+	}
+
+	// graph variables may come in a different order than the template's variables
+	public CausalGraph instantiate(String[] graphVarNames) {
+		CausalGraph graph = new CausalGraph(graphVarNames, false);
+		int numVars = varNames.length;
+		for (int pair = links.nextSetBit(0); pair >= 0; pair = links.nextSetBit(pair + 1)) {
+			int var1 = graph.nameToVar.get(varNames[pair / numVars]);
+			int var2 = graph.nameToVar.get(varNames[pair % numVars]);
+			graph.addLink(var1, var2);
+			graph.putArrow(var1, var2, false);
+			graph.addLink(var2, var1);
+			graph.putArrow(var2, var1, false);
+		}
+		return graph;
+	}
+}
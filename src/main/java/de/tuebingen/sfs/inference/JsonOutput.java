@@ -0,0 +1,86 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.PrintStream;
+
+// writes maps as JSON edge lists, for processing by other tools: a single map lists
+// its links with their types (see SemanticMapLinks), a consensus lists the linked
+// concept pairs with the frequencies of the link and of arrowheads at either concept
+// (as the frequency files of SummarizeSamples)
+public class JsonOutput {
+
+	public static void writeMap(SemanticMapLinks links, String[] varNames, PrintStream out) {
+		out.print("{\n  \"concepts\": ");
+		writeConcepts(varNames, out);
+		out.print(",\n  \"links\": [");
+		for (int i = 0; i < links.size(); i++) {
+			out.print(i == 0 ? "\n" : ",\n");
+			out.print("    {\"concept1\": " + jsonString(varNames[links.getVar1(i)]) + ", \"type\": "
+					+ jsonString(SemanticMapLinks.typeSymbol(links.getType(i))) + ", \"concept2\": "
+					+ jsonString(varNames[links.getVar2(i)]) + "}");
+		}
+		out.print(links.size() == 0 ? "]\n}\n" : "\n  ]\n}\n");
+	}
+
+	public static void writeConsensus(LinkFrequencyMonitor frequencies, String[] varNames, PrintStream out) {
+		out.print("{\n  \"concepts\": ");
+		writeConcepts(varNames, out);
+		out.print(",\n  \"samples\": " + frequencies.getNumSamples() + ",\n  \"links\": [");
+		boolean first = true;
+		for (int x = 0; x < varNames.length; x++) {
+			for (int y = x + 1; y < varNames.length; y++) {
+				double linkFrequency = frequencies.getLinkFrequency(x, y);
+				if (linkFrequency == 0.0)
+					continue;
+				out.print(first ? "\n" : ",\n");
+				out.print("    {\"concept1\": " + jsonString(varNames[x]) + ", \"concept2\": " + jsonString(varNames[y])
+						+ ", \"link\": " + linkFrequency + ", \"headAt1\": " + frequencies.getArrowFrequency(y, x)
+						+ ", \"headAt2\": " + frequencies.getArrowFrequency(x, y) + "}");
+				first = false;
+			}
+		}
+		out.print(first ? "]\n}\n" : "\n  ]\n}\n");
+	}
+
+	private static void writeConcepts(String[] varNames, PrintStream out) {
+		out.print('[');
+		for (int i = 0; i < varNames.length; i++) {
+			if (i > 0) {
+				out.print(", ");
+			}
+			out.print(jsonString(varNames[i]));
+		}
+		out.print(']');
+	}
+
+	public static String jsonString(String text) {
+		StringBuilder json = new StringBuilder(text.length() + 2);
+		json.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				} else {
+					json.append(c);
+				}
+			}
+		}
+		return json.append('"').toString();
+	}
+}
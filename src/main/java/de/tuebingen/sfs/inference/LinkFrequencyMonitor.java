@@ -0,0 +1,76 @@
+package de.tuebingen.sfs.inference;
+
+// keeps track of how often each link and each arrowhead occurred in the maps
+// inferred so far, in order to decide when the confidence values of a consensus
+// map are stable enough to stop sampling
+public class LinkFrequencyMonitor {
+
+	private final int numVars;
+	// linkCounts[i * numVars + j] for i < j: number of maps with a link between i and j
+	private final int[] linkCounts;
+	// headCounts[i * numVars + j]: number of maps with an arrowhead at j on the link i-j
+	private final int[] headCounts;
+	private int numSamples;
+
+	public LinkFrequencyMonitor(int numVars) {
+		this.numVars = numVars;
+		this.linkCounts = new int[numVars * numVars];
+		this.headCounts = new int[numVars * numVars];
+		this.numSamples = 0;
+	}
+
+	public void add(SemanticMapLinks links) {
+		for (int i = 0; i < links.size(); i++) {
+			int var1 = links.getVar1(i);
+			int var2 = links.getVar2(i);
+			linkCounts[Math.min(var1, var2) * numVars + Math.max(var1, var2)]++;
+			switch (links.getType(i)) {
+			case SemanticMapLinks.DIRECTED:
+				headCounts[var1 * numVars + var2]++;
+				break;
+			case SemanticMapLinks.BIDIRECTED:
+				headCounts[var1 * numVars + var2]++;
+				headCounts[var2 * numVars + var1]++;
+				break;
+			default:
+				break;
+			}
+		}
+		numSamples++;
+	}
+
+	public int getNumSamples() {
+		return numSamples;
+	}
+
+	public double getLinkFrequency(int var1, int var2) {
+		if (numSamples == 0)
+			return 0.0;
+		return (double) linkCounts[Math.min(var1, var2) * numVars + Math.max(var1, var2)] / numSamples;
+	}
+
+	// the share of maps with an arrowhead pointing at var2 on the link between var1 and var2
+	public double getArrowFrequency(int var1, int var2) {
+		if (numSamples == 0)
+			return 0.0;
+		return (double) headCounts[var1 * numVars + var2] / numSamples;
+	}
+
+	// the largest standard error sqrt(p * (1 - p) / n) over all link and arrowhead
+	// frequencies p observed in the n maps so far
+	public double getMaxStandardError() {
+		if (numSamples == 0)
+			return Double.POSITIVE_INFINITY;
+		double maxVariance = 0.0;
+		for (int i = 0; i < linkCounts.length; i++) {
+			maxVariance = Math.max(maxVariance, variance(linkCounts[i]));
+			maxVariance = Math.max(maxVariance, variance(headCounts[i]));
+		}
+		return Math.sqrt(maxVariance / numSamples);
+	}
+
+	private double variance(int count) {
+		double p = (double) count / numSamples;
+		return p * (1.0 - p);
+	}
+}
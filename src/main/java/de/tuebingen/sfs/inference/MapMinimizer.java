@@ -0,0 +1,135 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+import de.tuebingen.sfs.util.struct.Triple;
+
+// minimization mode: runs PC* with many variable processing orders (possibly
+// concurrently), and shares the size of the smallest map found so far between the
+// runs, so that runs which can no longer reach that size are aborted early (see
+// CountingUnitFlow)
+//
+// a run is only aborted if it cannot even reach the smallest size, so the maps of that
+// size are all completed, and the earliest of them is the same as without aborting
+// (for the random and greedy strategies, whose orders only depend on the run's seed)
+public class MapMinimizer {
+
+	// uniformly random orders (the same as those of PC* runs in random order)
+	public static final String RANDOM = "random";
+	// the concepts with the fewest colexifications first, with random perturbations of
+	// the order after the first run
+	public static final String GREEDY = "greedy";
+	// a few random swaps in the order of the smallest map found so far
+	public static final String LOCAL = "local";
+
+	private static final double GREEDY_NOISE = 0.5;
+	private static final int LOCAL_MAX_SWAPS = 3;
+
+	final PcStarSearch search;
+	final List<Set<Set<Triple<String, String, String>>>> sample;
+	final int[] multiplicities;
+	final String strategy;
+	// the number of colexifications of each variable
+	final long[] varWeights;
+
+	private final AtomicInteger minMapSize;
+	private final AtomicInteger numAborted;
+	private int[] minMapOrder;
+
+	// the pair counts are those of the sample, over the variables of the search
+	public MapMinimizer(PcStarSearch search, List<Set<Set<Triple<String, String, String>>>> sample,
+			int[] multiplicities, PairCountMatrix pairCounts, String strategy) {
+		if (!strategy.equals(RANDOM) && !strategy.equals(GREEDY) && !strategy.equals(LOCAL)) {
+			throw new IllegalArgumentException("Unknown minimization strategy: " + strategy);
+		}
+		this.search = search;
+		this.sample = sample;
+		this.multiplicities = multiplicities;
+		this.strategy = strategy;
+		int n = search.varNames.length;
+		this.varWeights = new long[n];
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				if (x != y) {
+					varWeights[x] += pairCounts.getCount(x, y);
+				}
+			}
+		}
+		this.minMapSize = new AtomicInteger(Integer.MAX_VALUE);
+		this.numAborted = new AtomicInteger();
+		this.minMapOrder = null;
+	}
+
+	// runs PC* with the next order of the strategy, and returns the resulting map, or
+	// null if the run was aborted
+	public CausalGraph run(int runIndex, SplittableRandom random, InferenceMetrics metrics) {
+		int[] order = nextOrder(runIndex, random);
+		CausalGraph semanticMap = search.inferInOrder(sample, multiplicities, order, minMapSize::get, metrics);
+		if (semanticMap == null) {
+			numAborted.incrementAndGet();
+			return null;
+		}
+		int mapSize = semanticMap.listAllLinks().size();
+		synchronized (this) {
+			if (mapSize < minMapSize.get()) {
+				minMapSize.set(mapSize);
+				minMapOrder = order;
+			}
+		}
+		return semanticMap;
+	}
+
+	int[] nextOrder(int runIndex, SplittableRandom random) {
+		int n = varWeights.length;
+		if (strategy.equals(GREEDY)) {
+			// sort by (possibly perturbed) weight, ties in random order
+			double noise = runIndex == 0 ? 0.0 : GREEDY_NOISE;
+			int[] permutation = SampleRandom.randomPermutation(n, random);
+			double[] keys = new double[n];
+			Integer[] vars = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				keys[i] = varWeights[i] * (1.0 + noise * (random.nextDouble() - 0.5));
+				vars[i] = permutation[i];
+			}
+			Arrays.sort(vars, (x, y) -> Double.compare(keys[x], keys[y]));
+			int[] order = new int[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = vars[i];
+			}
+			return order;
+		}
+		int[] order = null;
+		if (strategy.equals(LOCAL)) {
+			synchronized (this) {
+				if (minMapOrder != null) {
+					order = minMapOrder.clone();
+				}
+			}
+		}
+		if (order == null)
+			return SampleRandom.randomPermutation(n, random);
+		int numSwaps = 1 + random.nextInt(LOCAL_MAX_SWAPS);
+		for (int swap = 0; swap < numSwaps && n > 1; swap++) {
+			int i = random.nextInt(n);
+			int j = random.nextInt(n);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return order;
+	}
+
+	public int getMinMapSize() {
+		return minMapSize.get();
+	}
+
+	public int getNumAborted() {
+		return numAborted.get();
+	}
+}
@@ -0,0 +1,57 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.PrintStream;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+
+public class MinimalMapTracker {
+
+	// where offer() reports the map sizes
+	private final PrintStream out;
+	private int minMapSize = Integer.MAX_VALUE;
+	private int minMapSample = -1;
+	private CausalGraph minimalMap = null;
+
+	public MinimalMapTracker() {
+		this(System.out);
+	}
+
+	public MinimalMapTracker(PrintStream out) {
+		this.out = out;
+	}
+
+	// samples must be offered in sample order; on ties, the earliest sample is kept
+	public void offer(int sampleIndex, CausalGraph semanticMap) {
+		int mapSize = semanticMap.listAllLinks().size();
+		out.println("Map size: " + mapSize);
+		if (update(sampleIndex, semanticMap, mapSize)) {
+			out.println("Reached new smallest map size with " + mapSize + " links!");
+		}
+	}
+
+	// as offer(), but without reporting the map size (for samples restored from a checkpoint)
+	public void replay(int sampleIndex, CausalGraph semanticMap) {
+		update(sampleIndex, semanticMap, semanticMap.listAllLinks().size());
+	}
+
+	private boolean update(int sampleIndex, CausalGraph semanticMap, int mapSize) {
+		if (mapSize >= minMapSize)
+			return false;
+		minMapSize = mapSize;
+		minMapSample = sampleIndex;
+		minimalMap = semanticMap;
+		return true;
+	}
+
+	public int getMinMapSize() {
+		return minMapSize;
+	}
+
+	public int getMinMapSample() {
+		return minMapSample;
+	}
+
+	public CausalGraph getMinimalMap() {
+		return minimalMap;
+	}
+}
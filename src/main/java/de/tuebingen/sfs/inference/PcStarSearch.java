@@ -0,0 +1,141 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+import de.tuebingen.sfs.causal.algorithms.PcStarAlgorithm;
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.causal.heuristics.arrows.CausalArrowFinder;
+import de.tuebingen.sfs.causal.heuristics.arrows.CausalArrowFinderPcDefault;
+import de.tuebingen.sfs.causal.heuristics.separation.PartialCorrelationDiscreteUnitFlow;
+import de.tuebingen.sfs.util.struct.Triple;
+
+// runs PC* on samples of languages, with the unit flow criterion or (if given) the
+// area connectivity criterion; a sample is given by the partitions of its languages,
+// and for the connectivity criterion also by their multiplicities
+//
+// the link processing order is randomized reproducibly by running PC* on a permuted
+// variable order (with its own order randomization switched off), and mapping the
+// result back to the original variable order
+//
+// a run can be given a bound on the size of its map, and is aborted as soon as it
+// can no longer stay within the bound (see CountingUnitFlow)
+public class PcStarSearch {
+
+	final String[] varNames;
+	final InitialGraphTemplate initialGraph;
+	final double[][] thresholds;
+	final boolean directionality;
+	final AreaConnectivityCriterion connectivity;
+
+	public PcStarSearch(String[] varNames, InitialGraphTemplate initialGraph, double[][] thresholds,
+			boolean directionality, AreaConnectivityCriterion connectivity) {
+		this.varNames = varNames;
+		this.initialGraph = initialGraph;
+		this.thresholds = thresholds;
+		this.directionality = directionality;
+		this.connectivity = connectivity;
+	}
+
+	public String[] getVarNames() {
+		return varNames;
+	}
+
+	// the map of a sample, in a random link order drawn from the given random (if not
+	// null), recording the time spent in each phase if metrics are given
+	public CausalGraph infer(List<Set<Set<Triple<String, String, String>>>> sample, int[] multiplicities,
+			SplittableRandom random, InferenceMetrics metrics) {
+		if (random == null)
+			return run(sample, multiplicities, varNames, thresholds, false, null, metrics);
+		return inferInOrder(sample, multiplicities, SampleRandom.randomPermutation(varNames.length, random), metrics);
+	}
+
+	// the map of a sample, with PC* processing the variables in the order of the
+	// permutation (i.e. permutation[0] first)
+	public CausalGraph inferInOrder(List<Set<Set<Triple<String, String, String>>>> sample, int[] multiplicities,
+			int[] permutation, InferenceMetrics metrics) {
+		return inferInOrder(sample, multiplicities, permutation, null, metrics);
+	}
+
+	// as above, but null if the map would have more links than the bound (if given)
+	public CausalGraph inferInOrder(List<Set<Set<Triple<String, String, String>>>> sample, int[] multiplicities,
+			int[] permutation, IntSupplier maxMapSize, InferenceMetrics metrics) {
+		String[] permutedVarNames = new String[varNames.length];
+		double[][] permutedThresholds = new double[varNames.length][varNames.length];
+		int[] graphVars = new int[varNames.length];
+		for (int i = 0; i < varNames.length; i++) {
+			permutedVarNames[i] = varNames[permutation[i]];
+			graphVars[permutation[i]] = i;
+			for (int j = 0; j < varNames.length; j++) {
+				permutedThresholds[i][j] = thresholds[permutation[i]][permutation[j]];
+			}
+		}
+		CausalGraph permutedMap = run(sample, multiplicities, permutedVarNames, permutedThresholds, false, maxMapSize,
+				metrics);
+		if (permutedMap == null)
+			return null;
+		return SemanticMapLinks.fromGraph(permutedMap, graphVars, directionality).toGraph(varNames);
+	}
+
+	// PC* on the given variable order, with the randomization of PC* itself if
+	// randomLinkProcessingOrder is set (which no seed fixes); null if the map would
+	// have more links than the bound (if given)
+	public CausalGraph run(List<Set<Set<Triple<String, String, String>>>> sample, int[] multiplicities,
+			String[] graphVarNames, double[][] graphThresholds, boolean randomLinkProcessingOrder,
+			IntSupplier maxMapSize, InferenceMetrics metrics) {
+		long startTime = System.nanoTime();
+		CausalGraph semanticMap = initialGraph.instantiate(graphVarNames);
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.SEEDING, startTime);
+			startTime = System.nanoTime();
+		}
+
+		// conditional independence criterion defined by discrete unit flow
+		// (implementing the connected component criterion for isolectic sets), counting
+		// the tests if metrics are given, and checking the bound on the map size
+		PartialCorrelationDiscreteUnitFlow corrMeasure;
+		if (connectivity == null && metrics == null && maxMapSize == null) {
+			corrMeasure = new PartialCorrelationDiscreteUnitFlow(sample, semanticMap, graphVarNames, graphThresholds,
+					false);
+		} else {
+			CountingUnitFlow countingMeasure = connectivity != null
+					? new ConnectivityUnitFlow(sample, semanticMap, graphVarNames, graphThresholds, connectivity,
+							multiplicities, metrics)
+					: new CountingUnitFlow(sample, semanticMap, graphVarNames, graphThresholds, metrics);
+			countingMeasure.setMaxMapSize(maxMapSize);
+			corrMeasure = countingMeasure;
+		}
+
+		// apply v-structure criteria from PC algorithm (stable and conservative
+		// variant)
+		CausalArrowFinder<List<Set<Set<Triple<String, String, String>>>>> arrowFinder = new CausalArrowFinderPcDefault<List<Set<Set<Triple<String, String, String>>>>>(
+				sample, graphVarNames, true, true);
+
+		// run PC* algorithm to derive the semantic map (not assuming acyclicity)
+		PcStarAlgorithm pcInstance = new PcStarAlgorithm(corrMeasure, null, graphVarNames, semanticMap,
+				graphVarNames.length, true, true, false, randomLinkProcessingOrder);
+		try {
+			pcInstance.runSkeletonInference();
+		} catch (CountingUnitFlow.MapSizeExceededException e) {
+			if (metrics != null) {
+				metrics.addTime(InferenceMetrics.SKELETON, startTime);
+			}
+			return null;
+		}
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.SKELETON, startTime);
+			startTime = System.nanoTime();
+		}
+		if (directionality) {
+			pcInstance.runDirectionalityInference();
+		} else {
+			semanticMap.convertCirclesToLines();
+		}
+		if (metrics != null) {
+			metrics.addTime(InferenceMetrics.DIRECTIONALITY, startTime);
+		}
+		return semanticMap;
+	}
+}
@@ -0,0 +1,128 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+
+public class SampleExecutor {
+
+	public interface SampleTask {
+		CausalGraph runSample(int sampleIndex);
+	}
+
+	public interface SampleConsumer {
+		void accept(int sampleIndex, CausalGraph semanticMap);
+	}
+
+	public interface StoppingRule {
+		boolean shouldStop(int numConsumedSamples);
+	}
+
+	private final int numThreads;
+	// a pool shared between several runs (e.g. the jobs of a batch), or null if
+	// each run starts and stops its own pool
+	private final ExecutorService sharedPool;
+
+	public SampleExecutor(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+		this.sharedPool = null;
+	}
+
+	public SampleExecutor(ExecutorService sharedPool, int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+		this.sharedPool = sharedPool;
+	}
+
+	// creates an executor whose pool lives until shutdown() is called
+	public static SampleExecutor withSharedPool(int numThreads) {
+		numThreads = Math.max(1, numThreads);
+		return new SampleExecutor(numThreads == 1 ? null : Executors.newFixedThreadPool(numThreads), numThreads);
+	}
+
+	public void shutdown() {
+		if (sharedPool != null) {
+			sharedPool.shutdownNow();
+		}
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	// runs the samples on the worker pool, but hands the results to the consumer
+	// strictly in sample order, so that merging into summaries is single-threaded
+	// and yields the same result as a sequential run
+	public int run(int numSamples, final SampleTask task, SampleConsumer consumer) {
+		return run(numSamples, task, consumer, null);
+	}
+
+	// as above, but asks the stopping rule (if not null) after each consumed sample
+	// whether to stop early; samples which are already running are discarded, so the
+	// number of consumed samples does not depend on the number of threads
+	public int run(int numSamples, final SampleTask task, SampleConsumer consumer, StoppingRule stoppingRule) {
+		return run(0, numSamples, task, consumer, stoppingRule);
+	}
+
+	// as above, but starts with the given sample (e.g. when resuming from a checkpoint
+	// holding the earlier samples); the samples are still counted from 0, i.e. the
+	// result is the number of samples including the skipped ones
+	public int run(int firstSample, int numSamples, final SampleTask task, SampleConsumer consumer,
+			StoppingRule stoppingRule) {
+		if (numThreads == 1) {
+			for (int k = firstSample; k < numSamples; k++) {
+				consumer.accept(k, task.runSample(k));
+				if (stoppingRule != null && stoppingRule.shouldStop(k + 1))
+					return k + 1;
+			}
+			return numSamples;
+		}
+
+		ExecutorService pool = sharedPool != null ? sharedPool : Executors.newFixedThreadPool(numThreads);
+		Deque<Future<CausalGraph>> pending = new ArrayDeque<Future<CausalGraph>>(2 * numThreads);
+		try {
+			// bound the number of finished but not yet consumed maps
+			int window = 2 * numThreads;
+			int nextSubmitted = firstSample;
+			for (int k = firstSample; k < numSamples; k++) {
+				while (nextSubmitted < numSamples && pending.size() < window) {
+					final int sampleIndex = nextSubmitted++;
+					pending.add(pool.submit(() -> task.runSample(sampleIndex)));
+				}
+				consumer.accept(k, await(pending.poll()));
+				if (stoppingRule != null && stoppingRule.shouldStop(k + 1))
+					return k + 1;
+			}
+			return numSamples;
+		} finally {
+			if (pool != sharedPool) {
+				pool.shutdownNow();
+			} else {
+				// a stopped or failed run must not leave its samples occupying the shared pool
+				for (Future<CausalGraph> future : pending) {
+					future.cancel(true);
+				}
+			}
+		}
+	}
+
+	private static CausalGraph await(Future<CausalGraph> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for sample.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+}
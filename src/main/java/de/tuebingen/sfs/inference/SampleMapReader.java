@@ -0,0 +1,88 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// reads the sample maps written by SampleMapWriter one at a time, so that summaries
+// and link statistics can be computed from files with arbitrarily many samples
+public class SampleMapReader implements Closeable {
+
+	private final String fileName;
+	private final BufferedReader in;
+	private final String[] varNames;
+	private final Map<String, Integer> nameToVar;
+	private int sampleIndex;
+	private int lineNumber;
+
+	public SampleMapReader(String fileName) throws IOException {
+		this.fileName = fileName;
+		this.in = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(Paths.get(fileName)), 1 << 16), StandardCharsets.UTF_8));
+		String header = in.readLine();
+		lineNumber = 1;
+		if (header == null || !header.startsWith(SampleMapWriter.CONCEPTS_PREFIX)) {
+			in.close();
+			throw new IOException("Not a sample map file: " + fileName);
+		}
+		String[] fields = header.split("\t", -1);
+		this.varNames = Arrays.copyOfRange(fields, 1, fields.length);
+		this.nameToVar = new HashMap<String, Integer>();
+		for (int i = 0; i < varNames.length; i++) {
+			nameToVar.put(varNames[i], i);
+		}
+		this.sampleIndex = -1;
+	}
+
+	public String[] getVarNames() {
+		return varNames;
+	}
+
+	// the index of the sample returned by the last call of next()
+	public int getSampleIndex() {
+		return sampleIndex;
+	}
+
+	// the links of the next sample map, or null at the end of the file
+	public SemanticMapLinks next() throws IOException {
+		String line = in.readLine();
+		lineNumber++;
+		if (line == null)
+			return null;
+		String[] fields = line.split("\t");
+		if (fields.length != 3 || !fields[0].equals(SampleMapWriter.SAMPLE_PREFIX)) {
+			throw new IOException("Expected a sample header in line " + lineNumber + " of " + fileName + ": " + line);
+		}
+		sampleIndex = Integer.parseInt(fields[1]);
+		int numLinks = Integer.parseInt(fields[2]);
+		SemanticMapLinks sampleMap = new SemanticMapLinks(numLinks);
+		for (int i = 0; i < numLinks; i++) {
+			line = in.readLine();
+			lineNumber++;
+			if (line == null) {
+				throw new IOException("Truncated sample " + sampleIndex + " at the end of " + fileName);
+			}
+			fields = line.split("\t");
+			Integer var1 = fields.length == 3 ? nameToVar.get(fields[0]) : null;
+			Integer var2 = fields.length == 3 ? nameToVar.get(fields[2]) : null;
+			byte type = fields.length == 3 ? SemanticMapLinks.symbolType(fields[1]) : -1;
+			if (var1 == null || var2 == null || type < 0) {
+				throw new IOException("Invalid link in line " + lineNumber + " of " + fileName + ": " + line);
+			}
+			sampleMap.add(var1, var2, type);
+		}
+		return sampleMap;
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+}
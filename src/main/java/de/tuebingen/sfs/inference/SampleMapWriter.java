@@ -0,0 +1,56 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+
+// writes the maps of the individual samples to a gzipped text file as soon as they
+// are consumed, so that they are available for later analysis without being kept in
+// memory; the first line lists the concepts, and each sample consists of a line
+//
+// #sample <TAB> sampleIndex <TAB> numLinks
+//
+// followed by one line per link (concept1 <TAB> type symbol <TAB> concept2), where
+// directed links point from concept1 to concept2 (see SemanticMapLinks)
+public class SampleMapWriter implements Closeable {
+
+	static final String CONCEPTS_PREFIX = "#concepts";
+	static final String SAMPLE_PREFIX = "#sample";
+
+	private final String[] varNames;
+	private final Writer out;
+
+	public SampleMapWriter(String fileName, String[] varNames) throws IOException {
+		this.varNames = varNames;
+		this.out = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(Files.newOutputStream(Paths.get(fileName)), 1 << 16), StandardCharsets.UTF_8));
+		out.write(CONCEPTS_PREFIX);
+		for (String varName : varNames) {
+			out.write('\t');
+			out.write(varName);
+		}
+		out.write('\n');
+	}
+
+	public void write(int sampleIndex, SemanticMapLinks sampleMap) throws IOException {
+		out.write(SAMPLE_PREFIX + "\t" + sampleIndex + "\t" + sampleMap.size() + "\n");
+		for (int i = 0; i < sampleMap.size(); i++) {
+			out.write(varNames[sampleMap.getVar1(i)]);
+			out.write('\t');
+			out.write(SemanticMapLinks.typeSymbol(sampleMap.getType(i)));
+			out.write('\t');
+			out.write(varNames[sampleMap.getVar2(i)]);
+			out.write('\n');
+		}
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,34 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.SplittableRandom;
+
+public class SampleRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	// every sample gets its own generator derived from (seed, sampleIndex), so that
+	// results do not depend on the order or the thread in which samples are run
+	public static SplittableRandom forSample(long seed, int sampleIndex) {
+		return new SplittableRandom(mix64(seed + GOLDEN_GAMMA * (sampleIndex + 1L)));
+	}
+
+	public static int[] randomPermutation(int size, SplittableRandom random) {
+		int[] permutation = new int[size];
+		for (int i = 0; i < size; i++) {
+			permutation[i] = i;
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = tmp;
+		}
+		return permutation;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
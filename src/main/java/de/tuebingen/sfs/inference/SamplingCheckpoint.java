@@ -0,0 +1,265 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// the state of a bootstrap or minimization run after a number of samples: the maps
+// of the samples consumed so far (from which the summary, the minimal map and the
+// link frequencies are rebuilt), and the seed from which the random generators of
+// the remaining samples are derived (see SampleRandom)
+//
+// a shard of a run covers the samples from some first sample on, so that the shards
+// of a run can be merged by replaying their maps in sample order; the header records
+// which shard of how many it is, the sample before which it is planned to end, and
+// the number of samples of the whole run, so that shards which stopped early and
+// incomplete sets of shards can be detected
+//
+// the file starts with a header, and each write appends the maps added since the
+// previous write as one block: the number of samples, the length of the block, and
+// the gzipped maps, each stored as its number of links followed by the links (var1,
+// var2, type), in sample order; a block cut off by a killed run is ignored on reading,
+// and overwritten by the next write, so that the run resumes after the previous block
+//
+// once written, the maps are no longer kept in memory
+public class SamplingCheckpoint {
+
+	static final int MAGIC = 0x89434B50; // "\x89CKP"
+	static final int VERSION = 4;
+
+	// the settings which the samples depend on, in order to detect checkpoints of other analyses
+	final String runDescription;
+	final long baseSeed;
+	final String[] varNames;
+	final int firstSample;
+	// shard shardIndex of numShards (0 of 0 outside of shard mode), planned to end before
+	// sample plannedEndSample of totalSamples; the plan may change when a run is resumed
+	int shardIndex;
+	int numShards;
+	int plannedEndSample;
+	int totalSamples;
+	// the maps from sample firstStoredSample on which are still in memory
+	final List<SemanticMapLinks> sampleMaps;
+	int firstStoredSample;
+	int numWritten;
+	// the length of the header and the complete blocks in the file, -1 before the first write
+	long fileLength;
+
+	public SamplingCheckpoint(String runDescription, long baseSeed, String[] varNames) {
+		this(runDescription, baseSeed, varNames, 0);
+	}
+
+	public SamplingCheckpoint(String runDescription, long baseSeed, String[] varNames, int firstSample) {
+		this.runDescription = runDescription;
+		this.baseSeed = baseSeed;
+		this.varNames = varNames;
+		this.firstSample = firstSample;
+		this.shardIndex = 0;
+		this.numShards = 0;
+		this.plannedEndSample = firstSample;
+		this.totalSamples = firstSample;
+		this.sampleMaps = new ArrayList<SemanticMapLinks>();
+		this.firstStoredSample = firstSample;
+		this.numWritten = 0;
+		this.fileLength = -1;
+	}
+
+	public String getRunDescription() {
+		return runDescription;
+	}
+
+	public long getBaseSeed() {
+		return baseSeed;
+	}
+
+	public String[] getVarNames() {
+		return varNames;
+	}
+
+	public int getFirstSample() {
+		return firstSample;
+	}
+
+	public int getShardIndex() {
+		return shardIndex;
+	}
+
+	public int getNumShards() {
+		return numShards;
+	}
+
+	public int getPlannedEndSample() {
+		return plannedEndSample;
+	}
+
+	public int getTotalSamples() {
+		return totalSamples;
+	}
+
+	// stored with the next write
+	public void setPlan(int shardIndex, int numShards, int plannedEndSample, int totalSamples) {
+		this.shardIndex = shardIndex;
+		this.numShards = numShards;
+		this.plannedEndSample = plannedEndSample;
+		this.totalSamples = totalSamples;
+	}
+
+	public int getNumSamples() {
+		return getEndSample() - firstSample;
+	}
+
+	// the index of the next sample
+	public int getEndSample() {
+		return firstStoredSample + sampleMaps.size();
+	}
+
+	// only for the samples read from the file or added since the last write
+	public SemanticMapLinks getSampleMap(int sampleIndex) {
+		if (sampleIndex < firstStoredSample) {
+			throw new IllegalStateException("The map of sample " + sampleIndex + " has already been written.");
+		}
+		return sampleMaps.get(sampleIndex - firstStoredSample);
+	}
+
+	// samples must be added in sample order
+	public void add(SemanticMapLinks sampleMap) {
+		sampleMaps.add(sampleMap);
+	}
+
+	// the first write (re)creates the file, later writes append to it (and update the
+	// plan in the header, which keeps its length); a checkpoint read from a file must be
+	// written to the same file
+	public void writeToFile(String fileName) throws IOException {
+		Path path = Paths.get(fileName);
+		byte[] header = header();
+		if (fileLength < 0) {
+			Files.write(path, header);
+			fileLength = header.length;
+		}
+		int numNew = getEndSample() - (firstSample + numWritten);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			writeFully(channel, ByteBuffer.wrap(header), 0);
+			// drops the rest of a block cut off by a killed run
+			channel.truncate(fileLength);
+			if (numNew == 0)
+				return;
+			ByteBuffer block = block(sampleMaps.subList(sampleMaps.size() - numNew, sampleMaps.size()));
+			writeFully(channel, block, fileLength);
+			fileLength += block.limit();
+		}
+		numWritten += numNew;
+		firstStoredSample = getEndSample();
+		sampleMaps.clear();
+	}
+
+	private static ByteBuffer block(List<SemanticMapLinks> blockMaps) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(bytes), 1 << 16))) {
+			for (SemanticMapLinks sampleMap : blockMaps) {
+				out.writeInt(sampleMap.size());
+				for (int i = 0; i < sampleMap.size(); i++) {
+					out.writeInt(sampleMap.getVar1(i));
+					out.writeInt(sampleMap.getVar2(i));
+					out.writeByte(sampleMap.getType(i));
+				}
+			}
+		}
+		ByteBuffer block = ByteBuffer.allocate(8 + bytes.size());
+		block.putInt(blockMaps.size()).putInt(bytes.size()).put(bytes.toByteArray());
+		block.flip();
+		return block;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	private byte[] header() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(runDescription);
+			out.writeLong(baseSeed);
+			out.writeInt(varNames.length);
+			for (String varName : varNames) {
+				out.writeUTF(varName);
+			}
+			out.writeInt(firstSample);
+			out.writeInt(shardIndex);
+			out.writeInt(numShards);
+			out.writeInt(plannedEndSample);
+			out.writeInt(totalSamples);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static SamplingCheckpoint readFromFile(String fileName) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(Paths.get(fileName)), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a sampling checkpoint file: " + fileName);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported sampling checkpoint version " + version + " in " + fileName);
+			}
+			String runDescription = in.readUTF();
+			long baseSeed = in.readLong();
+			String[] varNames = new String[in.readInt()];
+			for (int i = 0; i < varNames.length; i++) {
+				varNames[i] = in.readUTF();
+			}
+			int firstSample = in.readInt();
+			SamplingCheckpoint checkpoint = new SamplingCheckpoint(runDescription, baseSeed, varNames, firstSample);
+			checkpoint.setPlan(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+			long fileLength = checkpoint.header().length;
+			while (true) {
+				byte[] bytes;
+				int numSamples;
+				try {
+					numSamples = in.readInt();
+					bytes = new byte[in.readInt()];
+					in.readFully(bytes);
+				} catch (EOFException e) {
+					break;
+				}
+				try (DataInputStream blockIn = new DataInputStream(new BufferedInputStream(
+						new GZIPInputStream(new ByteArrayInputStream(bytes)), 1 << 16))) {
+					for (int k = 0; k < numSamples; k++) {
+						int numLinks = blockIn.readInt();
+						SemanticMapLinks sampleMap = new SemanticMapLinks(numLinks);
+						for (int i = 0; i < numLinks; i++) {
+							int var1 = blockIn.readInt();
+							int var2 = blockIn.readInt();
+							sampleMap.add(var1, var2, blockIn.readByte());
+						}
+						checkpoint.add(sampleMap);
+					}
+				}
+				fileLength += 8 + bytes.length;
+			}
+			checkpoint.numWritten = checkpoint.getNumSamples();
+			checkpoint.fileLength = fileLength;
+			return checkpoint;
+		}
+	}
+}
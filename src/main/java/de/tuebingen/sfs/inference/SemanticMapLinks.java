@@ -0,0 +1,141 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.Arrays;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+
+// compact list of the links in an inferred semantic map, extracted from a
+// CausalGraph, which makes it possible to move maps between files and processes
+public class SemanticMapLinks {
+
+	public static final byte UNDIRECTED = 0; // ---
+	public static final byte CIRCLE = 1; // o-o
+	public static final byte DIRECTED = 2; // -->
+	public static final byte BIDIRECTED = 3; // <->
+
+	private static final String[] SYMBOLS = { "---", "o-o", "-->", "<->" };
+
+	int[] var1;
+	int[] var2;
+	byte[] types;
+	int size;
+
+	public SemanticMapLinks(int capacity) {
+		var1 = new int[Math.max(capacity, 4)];
+		var2 = new int[var1.length];
+		types = new byte[var1.length];
+		size = 0;
+	}
+
+	// undirected, circle and bidirected links are stored with var1 < var2,
+	// directed links point from var1 to var2
+	public void add(int from, int to, byte type) {
+		if (type != DIRECTED && from > to) {
+			int tmp = from;
+			from = to;
+			to = tmp;
+		}
+		if (size == var1.length) {
+			var1 = Arrays.copyOf(var1, 2 * size);
+			var2 = Arrays.copyOf(var2, 2 * size);
+			types = Arrays.copyOf(types, 2 * size);
+		}
+		var1[size] = from;
+		var2[size] = to;
+		types[size] = type;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getVar1(int i) {
+		return var1[i];
+	}
+
+	public int getVar2(int i) {
+		return var2[i];
+	}
+
+	public byte getType(int i) {
+		return types[i];
+	}
+
+	public static String typeSymbol(byte type) {
+		return SYMBOLS[type];
+	}
+
+	// the inverse of typeSymbol(), or -1 for an unknown symbol
+	public static byte symbolType(String symbol) {
+		for (byte type = 0; type < SYMBOLS.length; type++) {
+			if (SYMBOLS[type].equals(symbol))
+				return type;
+		}
+		return -1;
+	}
+
+	// reads the links and their arrowheads from the graph; the remaining ends are
+	// circles after directionality inference, and tails otherwise (where all undecided
+	// links were converted to lines)
+	public static SemanticMapLinks fromGraph(CausalGraph graph, String[] varNames, boolean directionality) {
+		int[] graphVars = new int[varNames.length];
+		for (int x = 0; x < graphVars.length; x++) {
+			graphVars[x] = x;
+		}
+		return fromGraph(graph, graphVars, directionality);
+	}
+
+	// as above, for a graph over a permutation of the variables, in which variable x
+	// has the id graphVars[x]
+	public static SemanticMapLinks fromGraph(CausalGraph graph, int[] graphVars, boolean directionality) {
+		byte undirectedType = directionality ? CIRCLE : UNDIRECTED;
+		SemanticMapLinks links = new SemanticMapLinks(graphVars.length);
+		for (int x = 0; x < graphVars.length; x++) {
+			for (int y = x + 1; y < graphVars.length; y++) {
+				if (!graph.hasLink(graphVars[x], graphVars[y]))
+					continue;
+				boolean headAtY = graph.hasArrow(graphVars[x], graphVars[y]);
+				boolean headAtX = graph.hasArrow(graphVars[y], graphVars[x]);
+				if (headAtX && headAtY) {
+					links.add(x, y, BIDIRECTED);
+				} else if (headAtY) {
+					links.add(x, y, DIRECTED);
+				} else if (headAtX) {
+					links.add(y, x, DIRECTED);
+				} else {
+					links.add(x, y, undirectedType);
+				}
+			}
+		}
+		return links;
+	}
+
+	// rebuilds a CausalGraph with the given links; the end marks of the original
+	// graph are reproduced by adding all links with circle ends, converting these to
+	// tails, and only then adding the links whose ends remained undecided
+	public CausalGraph toGraph(String[] varNames) {
+		CausalGraph graph = new CausalGraph(varNames, false);
+		boolean hasCircles = false;
+		for (int i = 0; i < size; i++) {
+			if (types[i] == CIRCLE) {
+				hasCircles = true;
+				continue;
+			}
+			graph.addLink(var1[i], var2[i]);
+			graph.putArrow(var1[i], var2[i], types[i] == DIRECTED || types[i] == BIDIRECTED);
+			graph.putArrow(var2[i], var1[i], types[i] == BIDIRECTED);
+		}
+		graph.convertCirclesToLines();
+		if (hasCircles) {
+			for (int i = 0; i < size; i++) {
+				if (types[i] != CIRCLE)
+					continue;
+				graph.addLink(var1[i], var2[i]);
+				graph.putArrow(var1[i], var2[i], false);
+				graph.putArrow(var2[i], var1[i], false);
+			}
+		}
+		return graph;
+	}
+}
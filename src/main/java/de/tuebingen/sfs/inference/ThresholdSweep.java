@@ -0,0 +1,129 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.lextyp.struct.LanguageCoverage;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+
+// infers the skeletons for a grid of link and gap thresholds with PC*, sharing all
+// work which does not depend on the thresholds: the partitions and the coverage are
+// built once for all languages, and the initial graph once from the pair counts of
+// all languages, as in separate runs; a setting only selects the languages kept by
+// its gap threshold, and its samples are views of their partitions (and, for the
+// connectivity criterion, their multiplicities, with one criterion serving all
+// settings)
+public class ThresholdSweep {
+
+	final String[] varNames;
+	final LanguagePartitions allLanguages;
+	final InitialGraphTemplate initialGraph;
+	final LanguageCoverage coverage;
+	final AreaConnectivityCriterion connectivity;
+
+	public ThresholdSweep(LanguagePartitions allLanguages, AreaConnectivityCriterion connectivity) {
+		this(allLanguages, InitialGraphTemplate.fromPairCounts(PairCountMatrix.fromLanguagePartitions(allLanguages)),
+				connectivity);
+	}
+
+	// PC* runs on the unit flow criterion if no connectivity criterion is given
+	public ThresholdSweep(LanguagePartitions allLanguages, InitialGraphTemplate initialGraph,
+			AreaConnectivityCriterion connectivity) {
+		this.varNames = allLanguages.getConcepts();
+		this.allLanguages = allLanguages;
+		this.initialGraph = initialGraph;
+		this.coverage = new LanguageCoverage(allLanguages);
+		this.connectivity = connectivity;
+	}
+
+	// the skeletons of one setting: the map of all kept languages if numSamples is 1,
+	// and otherwise the maps of numSamples bootstrap samples over the kept languages
+	public Result run(double linkThreshold, int gapThreshold, int numSamples, long seed, SampleExecutor executor,
+			InferenceMetrics metrics) {
+		double[][] thresholds = new double[varNames.length][varNames.length];
+		for (double[] thresholdRow : thresholds) {
+			Arrays.fill(thresholdRow, linkThreshold);
+		}
+		PcStarSearch search = new PcStarSearch(varNames, initialGraph, thresholds, false, connectivity);
+		final int[] keptLanguages = coverage.getKeptLanguages(gapThreshold);
+		final boolean resample = numSamples > 1;
+		Result result = new Result(linkThreshold, gapThreshold, keptLanguages.length, varNames.length);
+		result.numSamples = executor.run(numSamples, k -> {
+			int[] sample = keptLanguages;
+			if (resample) {
+				SplittableRandom random = SampleRandom.forSample(seed, k);
+				sample = new int[keptLanguages.length];
+				for (int i = 0; i < sample.length; i++) {
+					sample[i] = keptLanguages[random.nextInt(keptLanguages.length)];
+				}
+			}
+			int[] multiplicities = connectivity == null ? null : allLanguages.multiplicities(sample);
+			return search.infer(allLanguages.samplePartitions(sample), multiplicities, null, metrics);
+		}, (k, semanticMap) -> result.add(SemanticMapLinks.fromGraph(semanticMap, varNames, false)));
+		return result;
+	}
+
+	// the map sizes and link frequencies of one setting
+	public static class Result {
+		final double linkThreshold;
+		final int gapThreshold;
+		final int numLanguages;
+		final LinkFrequencyMonitor linkFrequencies;
+		int numSamples;
+		long numLinks;
+
+		Result(double linkThreshold, int gapThreshold, int numLanguages, int numVars) {
+			this.linkThreshold = linkThreshold;
+			this.gapThreshold = gapThreshold;
+			this.numLanguages = numLanguages;
+			this.linkFrequencies = new LinkFrequencyMonitor(numVars);
+		}
+
+		void add(SemanticMapLinks links) {
+			linkFrequencies.add(links);
+			numLinks += links.size();
+		}
+
+		public int getNumLanguages() {
+			return numLanguages;
+		}
+
+		public int getNumSamples() {
+			return numSamples;
+		}
+
+		public double getMeanMapSize() {
+			return numSamples == 0 ? 0.0 : (double) numLinks / numSamples;
+		}
+
+		public double getLinkFrequency(int var1, int var2) {
+			return linkFrequencies.getLinkFrequency(var1, var2);
+		}
+	}
+
+	public static void printHeader(PrintStream out) {
+		out.println("linkThreshold\tgapThreshold\tlanguages\tsamples\tmeanMapSize\tconcept1\tconcept2\tconfidence");
+	}
+
+	// one row per link occurring in some map of the setting (a single row without
+	// concepts if all maps are empty)
+	public void print(Result result, PrintStream out) {
+		String setting = result.linkThreshold + "\t" + result.gapThreshold + "\t" + result.numLanguages + "\t"
+				+ result.numSamples + "\t" + result.getMeanMapSize();
+		boolean anyLink = false;
+		for (int x = 0; x < varNames.length; x++) {
+			for (int y = x + 1; y < varNames.length; y++) {
+				double confidence = result.getLinkFrequency(x, y);
+				if (confidence > 0.0) {
+					out.println(setting + "\t" + varNames[x] + "\t" + varNames[y] + "\t" + confidence);
+					anyLink = true;
+				}
+			}
+		}
+		if (!anyLink) {
+			out.println(setting + "\t-\t-\t0.0");
+		}
+	}
+}
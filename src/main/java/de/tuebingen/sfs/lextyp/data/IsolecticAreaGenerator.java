@@ -0,0 +1,222 @@
+package de.tuebingen.sfs.lextyp.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+
+// samples isolectic areas from a known (ground truth) semantic map: every area is
+// a connected subgraph of the map, except for noise colexifications which add a
+// random unconnected concept to an area; this makes it possible to test inference
+// at scale, and to check whether the planted map is recovered
+public class IsolecticAreaGenerator {
+
+	String[] concepts;
+	// links[i * n + j] for i < j, as in InitialGraphTemplate
+	BitSet links;
+	int[][] neighbors;
+
+	double meanAreaSize = 2.0;
+	int maxAreaSize = 8;
+	double gapRate = 0.0;
+	double noiseRate = 0.0;
+
+	public IsolecticAreaGenerator(String[] concepts, BitSet links) {
+		this.concepts = concepts;
+		this.links = links;
+		int n = concepts.length;
+		List<List<Integer>> neighborLists = new ArrayList<List<Integer>>(n);
+		for (int i = 0; i < n; i++) {
+			neighborLists.add(new ArrayList<Integer>());
+		}
+		for (int pair = links.nextSetBit(0); pair >= 0; pair = links.nextSetBit(pair + 1)) {
+			neighborLists.get(pair / n).add(pair % n);
+			neighborLists.get(pair % n).add(pair / n);
+		}
+		this.neighbors = new int[n][];
+		for (int i = 0; i < n; i++) {
+			neighbors[i] = neighborLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	// a random connected map: a random tree (each concept is linked to one of the concepts
+	// before it), plus the given number of additional links between random concepts
+	public static IsolecticAreaGenerator withRandomMap(int numConcepts, int numExtraLinks, SplittableRandom random) {
+		String[] concepts = new String[numConcepts];
+		String format = "C%0" + String.valueOf(Math.max(numConcepts - 1, 1)).length() + "d";
+		for (int i = 0; i < numConcepts; i++) {
+			concepts[i] = String.format(format, i);
+		}
+		BitSet links = new BitSet(numConcepts * numConcepts);
+		for (int i = 1; i < numConcepts; i++) {
+			links.set(random.nextInt(i) * numConcepts + i);
+		}
+		long maxLinks = (long) numConcepts * (numConcepts - 1) / 2;
+		int numLinks = numConcepts - 1;
+		int targetLinks = (int) Math.min(maxLinks, (long) numLinks + numExtraLinks);
+		while (numLinks < targetLinks) {
+			int i = random.nextInt(numConcepts);
+			int j = random.nextInt(numConcepts);
+			int pair = Math.min(i, j) * numConcepts + Math.max(i, j);
+			if (i != j && !links.get(pair)) {
+				links.set(pair);
+				numLinks++;
+			}
+		}
+		return new IsolecticAreaGenerator(concepts, links);
+	}
+
+	// area sizes follow a geometric distribution with the given mean, cut off at maxAreaSize
+	public void setAreaSizes(double meanAreaSize, int maxAreaSize) {
+		this.meanAreaSize = Math.max(1.0, meanAreaSize);
+		this.maxAreaSize = Math.max(1, maxAreaSize);
+	}
+
+	// the probability of a concept not being expressed at all in a language
+	public void setGapRate(double gapRate) {
+		this.gapRate = gapRate;
+	}
+
+	// the probability of an area containing a concept which is not connected to the others
+	public void setNoiseRate(double noiseRate) {
+		this.noiseRate = noiseRate;
+	}
+
+	public String[] getConcepts() {
+		return concepts;
+	}
+
+	public boolean hasLink(int var1, int var2) {
+		return var1 != var2 && links.get(Math.min(var1, var2) * concepts.length + Math.max(var1, var2));
+	}
+
+	public int getNumLinks() {
+		return links.cardinality();
+	}
+
+	// the ground truth map as an undirected graph
+	public CausalGraph toCausalGraph() {
+		CausalGraph graph = new CausalGraph(concepts, false);
+		int n = concepts.length;
+		for (int pair = links.nextSetBit(0); pair >= 0; pair = links.nextSetBit(pair + 1)) {
+			graph.addLink(pair / n, pair % n);
+			graph.putArrow(pair / n, pair % n, false);
+			graph.addLink(pair % n, pair / n);
+			graph.putArrow(pair % n, pair / n, false);
+		}
+		graph.convertCirclesToLines();
+		return graph;
+	}
+
+	// every language covers its non-gap concepts by areas which are grown from a random
+	// uncovered concept along the links of the map; areas may overlap (polysemy)
+	public List<IsolecticArea> generate(int numLanguages, SplittableRandom random) {
+		int n = concepts.length;
+		String langFormat = "L%0" + String.valueOf(Math.max(numLanguages - 1, 1)).length() + "d";
+		List<IsolecticArea> isolecticAreas = new ArrayList<IsolecticArea>();
+		boolean[] gap = new boolean[n];
+		boolean[] covered = new boolean[n];
+		boolean[] inArea = new boolean[n];
+		int[] area = new int[n];
+		int[] order = new int[n];
+		List<Integer> frontier = new ArrayList<Integer>();
+		for (int langID = 0; langID < numLanguages; langID++) {
+			String lang = String.format(langFormat, langID);
+			int numAvailable = 0;
+			for (int i = 0; i < n; i++) {
+				gap[i] = random.nextDouble() < gapRate;
+				covered[i] = gap[i];
+				if (!gap[i])
+					numAvailable++;
+				order[i] = i;
+			}
+			shuffle(order, random);
+
+			int lemmaID = 0;
+			for (int seed : order) {
+				if (covered[seed])
+					continue;
+				int areaSize = sampleAreaSize(random);
+				int size = 0;
+				area[size++] = seed;
+				inArea[seed] = true;
+				frontier.clear();
+				addToFrontier(seed, gap, inArea, frontier);
+				while (size < areaSize && !frontier.isEmpty()) {
+					int next = frontier.remove(random.nextInt(frontier.size()));
+					if (inArea[next])
+						continue;
+					area[size++] = next;
+					inArea[next] = true;
+					addToFrontier(next, gap, inArea, frontier);
+				}
+				if (size < numAvailable && random.nextDouble() < noiseRate) {
+					int noise = randomUnconnectedConcept(area, size, gap, inArea, random);
+					if (noise >= 0) {
+						area[size++] = noise;
+						inArea[noise] = true;
+					}
+				}
+
+				TreeSet<String> areaConcepts = new TreeSet<String>();
+				for (int k = 0; k < size; k++) {
+					areaConcepts.add(concepts[area[k]]);
+					covered[area[k]] = true;
+					inArea[area[k]] = false;
+				}
+				isolecticAreas.add(new IsolecticArea(lang, lang + "-" + lemmaID++, areaConcepts));
+			}
+		}
+		return isolecticAreas;
+	}
+
+	private int sampleAreaSize(SplittableRandom random) {
+		// number of trials until the first success with probability 1 / meanAreaSize
+		double successProb = 1.0 / meanAreaSize;
+		int size = 1;
+		while (size < maxAreaSize && random.nextDouble() >= successProb) {
+			size++;
+		}
+		return size;
+	}
+
+	private void addToFrontier(int concept, boolean[] gap, boolean[] inArea, List<Integer> frontier) {
+		for (int neighbor : neighbors[concept]) {
+			if (!gap[neighbor] && !inArea[neighbor]) {
+				frontier.add(neighbor);
+			}
+		}
+	}
+
+	// a random available concept which is not linked to any concept of the area (or -1)
+	private int randomUnconnectedConcept(int[] area, int size, boolean[] gap, boolean[] inArea,
+			SplittableRandom random) {
+		int n = concepts.length;
+		int start = random.nextInt(n);
+		for (int offset = 0; offset < n; offset++) {
+			int candidate = (start + offset) % n;
+			if (gap[candidate] || inArea[candidate])
+				continue;
+			boolean connected = false;
+			for (int k = 0; k < size && !connected; k++) {
+				connected = hasLink(area[k], candidate);
+			}
+			if (!connected)
+				return candidate;
+		}
+		return -1;
+	}
+
+	private static void shuffle(int[] values, SplittableRandom random) {
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+	}
+}
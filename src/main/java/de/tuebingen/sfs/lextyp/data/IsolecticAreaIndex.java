@@ -0,0 +1,211 @@
+package de.tuebingen.sfs.lextyp.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import de.tuebingen.sfs.lextyp.struct.InternedIsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.StringDictionary;
+
+// interned isolectic areas with posting lists from concepts and languages to area
+// ids, built once so that concept selections only touch the matching areas
+public class IsolecticAreaIndex {
+
+	InternedIsolecticArea[] areas;
+	StringDictionary languages;
+	StringDictionary lemmas;
+	StringDictionary concepts;
+	int[][] conceptPostings;
+	int[][] languagePostings;
+
+	public IsolecticAreaIndex(Collection<IsolecticArea> isolecticAreas) {
+		this(isolecticAreas, null);
+	}
+
+	// additional languages are indexed even if none of their areas are given
+	public IsolecticAreaIndex(Collection<IsolecticArea> isolecticAreas, Collection<String> languageIDs) {
+		Builder builder = new Builder();
+		if (languageIDs != null) {
+			for (String lang : languageIDs) {
+				builder.addLanguage(lang);
+			}
+		}
+		for (IsolecticArea area : isolecticAreas) {
+			builder.accept(area);
+		}
+		builder.build(this);
+	}
+
+	IsolecticAreaIndex() {
+	}
+
+	// collects (duplicate-free) areas while they are being read, and assigns
+	// language and concept ids in lexicographic order when the index is built
+	public static class Builder implements Consumer<IsolecticArea> {
+		StringDictionary languages = new StringDictionary();
+		StringDictionary lemmas = new StringDictionary();
+		StringDictionary concepts = new StringDictionary();
+		Set<InternedIsolecticArea> areas = new HashSet<InternedIsolecticArea>();
+		List<InternedIsolecticArea> areaList = new ArrayList<InternedIsolecticArea>();
+
+		public void addLanguage(String lang) {
+			languages.intern(lang);
+		}
+
+		public void accept(IsolecticArea area) {
+			InternedIsolecticArea internedArea = InternedIsolecticArea.intern(area, languages, lemmas, concepts);
+			if (areas.add(internedArea)) {
+				areaList.add(internedArea);
+			}
+		}
+
+		public IsolecticAreaIndex build() {
+			return build(new IsolecticAreaIndex());
+		}
+
+		IsolecticAreaIndex build(IsolecticAreaIndex index) {
+			int[] languageIDs = new int[languages.size()];
+			index.languages = sortedDictionary(languages, languageIDs);
+			int[] conceptIDs = new int[concepts.size()];
+			index.concepts = sortedDictionary(concepts, conceptIDs);
+			index.lemmas = lemmas;
+
+			index.areas = new InternedIsolecticArea[areaList.size()];
+			for (int areaID = 0; areaID < index.areas.length; areaID++) {
+				InternedIsolecticArea area = areaList.get(areaID);
+				int[] areaConcepts = new int[area.getConcepts().length];
+				for (int i = 0; i < areaConcepts.length; i++) {
+					areaConcepts[i] = conceptIDs[area.getConcepts()[i]];
+				}
+				Arrays.sort(areaConcepts);
+				index.areas[areaID] = new InternedIsolecticArea(languageIDs[area.getLang()], area.getLemma(),
+						areaConcepts);
+			}
+			index.buildPostings();
+			return index;
+		}
+
+		// re-interns the strings in lexicographic order, newIDs maps old to new ids
+		private static StringDictionary sortedDictionary(StringDictionary dict, int[] newIDs) {
+			Set<String> sorted = new TreeSet<String>();
+			for (int id = 0; id < dict.size(); id++) {
+				sorted.add(dict.get(id));
+			}
+			StringDictionary sortedDict = new StringDictionary();
+			for (String string : sorted) {
+				sortedDict.intern(string);
+			}
+			for (int id = 0; id < dict.size(); id++) {
+				newIDs[id] = sortedDict.lookup(dict.get(id));
+			}
+			return sortedDict;
+		}
+	}
+
+	private void buildPostings() {
+		int[] conceptCounts = new int[concepts.size()];
+		int[] languageCounts = new int[languages.size()];
+		for (InternedIsolecticArea area : areas) {
+			languageCounts[area.getLang()]++;
+			for (int concept : area.getConcepts()) {
+				conceptCounts[concept]++;
+			}
+		}
+		conceptPostings = new int[concepts.size()][];
+		for (int conceptID = 0; conceptID < conceptPostings.length; conceptID++) {
+			conceptPostings[conceptID] = new int[conceptCounts[conceptID]];
+		}
+		languagePostings = new int[languages.size()][];
+		for (int langID = 0; langID < languagePostings.length; langID++) {
+			languagePostings[langID] = new int[languageCounts[langID]];
+		}
+		Arrays.fill(conceptCounts, 0);
+		Arrays.fill(languageCounts, 0);
+		for (int areaID = 0; areaID < areas.length; areaID++) {
+			int langID = areas[areaID].getLang();
+			languagePostings[langID][languageCounts[langID]++] = areaID;
+			for (int conceptID : areas[areaID].getConcepts()) {
+				conceptPostings[conceptID][conceptCounts[conceptID]++] = areaID;
+			}
+		}
+	}
+
+	public int getNumAreas() {
+		return areas.length;
+	}
+
+	// materializes the area with string-based language, lemma and concepts
+	public IsolecticArea getArea(int areaID) {
+		return areas[areaID].toIsolecticArea(languages, lemmas, concepts);
+	}
+
+	public InternedIsolecticArea getInternedArea(int areaID) {
+		return areas[areaID];
+	}
+
+	public int getLanguageOfArea(int areaID) {
+		return areas[areaID].getLang();
+	}
+
+	public StringDictionary getLanguages() {
+		return languages;
+	}
+
+	public StringDictionary getLemmas() {
+		return lemmas;
+	}
+
+	public StringDictionary getConcepts() {
+		return concepts;
+	}
+
+	// ids of the areas which contain the concept (empty for unknown concepts)
+	public int[] getConceptPostings(String concept) {
+		int conceptID = concepts.lookup(concept);
+		return conceptID == -1 ? new int[0] : conceptPostings[conceptID];
+	}
+
+	public int[] getConceptPostings(int conceptID) {
+		return conceptPostings[conceptID];
+	}
+
+	public int[] getLanguagePostings(int langID) {
+		return languagePostings[langID];
+	}
+
+	// sorted ids of the areas which contain at least one of the concepts
+	public int[] getAreasWithConcepts(Collection<String> selectedConcepts) {
+		boolean[] selected = new boolean[areas.length];
+		int numSelected = 0;
+		for (String concept : selectedConcepts) {
+			for (int areaID : getConceptPostings(concept)) {
+				if (!selected[areaID]) {
+					selected[areaID] = true;
+					numSelected++;
+				}
+			}
+		}
+		int[] areaIDs = new int[numSelected];
+		numSelected = 0;
+		for (int areaID = 0; areaID < areas.length; areaID++) {
+			if (selected[areaID]) {
+				areaIDs[numSelected++] = areaID;
+			}
+		}
+		return areaIDs;
+	}
+
+	public Set<IsolecticArea> getAreas(int[] areaIDs) {
+		Set<IsolecticArea> selectedAreas = new HashSet<IsolecticArea>(2 * areaIDs.length);
+		for (int areaID : areaIDs) {
+			selectedAreas.add(getArea(areaID));
+		}
+		return selectedAreas;
+	}
+}
@@ -1,6 +1,9 @@
 package de.tuebingen.sfs.lextyp.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +13,8 @@ import java.util.TreeSet;
 import java.util.Map.Entry;
 
 import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguageCoverage;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
 import de.tuebingen.sfs.util.struct.ComparableTriple;
 import de.tuebingen.sfs.util.struct.Triple;
 
@@ -27,6 +32,16 @@ public class IsolecticAreaProcessing {
 		}
 		return conceptCounts;
 	}
+	
+	// the same counts as above, which start at 1 (so that minimal occurrence thresholds
+	// select the same concepts as before)
+	public static Map<String, Integer> countConcepts(IsolecticAreaIndex index) {
+		Map<String, Integer> conceptCounts = new TreeMap<String, Integer>();
+		for (int conceptID = 0; conceptID < index.getConcepts().size(); conceptID++) {
+			conceptCounts.put(index.getConcepts().get(conceptID), index.getConceptPostings(conceptID).length + 1);
+		}
+		return conceptCounts;
+	}
 
 	public static void filterConceptsByMinOccurrence(Set<String> concepts, Set<IsolecticArea> isolecticAreas,
 			int minConceptOccurrences) {
@@ -38,108 +53,136 @@ public class IsolecticAreaProcessing {
 		}
 	}
 	
-	public static List<Set<Set<Triple<String, String, String>>>> isolecticAreasToSamplePartitions(Set<IsolecticArea> isolecticAreas){
-		return isolecticAreasToSamplePartitions(isolecticAreas, null);
+	public static void filterConceptsByMinOccurrence(Set<String> concepts, IsolecticAreaIndex index,
+			int minConceptOccurrences) {
+		for (int conceptID = 0; conceptID < index.getConcepts().size(); conceptID++) {
+			if (index.getConceptPostings(conceptID).length + 1 >= minConceptOccurrences) {
+				concepts.add(index.getConcepts().get(conceptID));
+			}
+		}
 	}
 	
-	public static List<Set<Set<Triple<String, String, String>>>> isolecticAreasToSamplePartitions(Set<IsolecticArea> isolecticAreas, List<String> langIDs)
-	{
-		if (langIDs != null)
-		{
-	        Map<String,Set<Set<Triple<String, String, String>>>> samplePartitionsPerLang = new TreeMap<String,Set<Set<Triple<String, String, String>>>>();
-	        for (String lang : langIDs)
-	        {
-	        	samplePartitionsPerLang.put(lang, new HashSet<Set<Triple<String, String, String>>>());
-	        }
-			
-	        for (IsolecticArea area : isolecticAreas)
-	        {
-	        	Set<Triple<String, String, String>> pairSet = new TreeSet<Triple<String, String, String>>();
-	        	for (String concept : area.getConcepts())
-	        	{
-	        		pairSet.add(new ComparableTriple<String,String, String>(concept, concept, concept));
-	        	}
-				samplePartitionsPerLang.get(area.getLang()).add(pairSet);
-			}
-	        
-	        List<Set<Set<Triple<String, String, String>>>> samplePartitions = new ArrayList<Set<Set<Triple<String, String, String>>>>(langIDs.size());
-			for (String lang : langIDs)
-			{
-				samplePartitions.add(samplePartitionsPerLang.get(lang));
-			}
-			return samplePartitions;
+	// the partitions of all languages (with all their areas), in the order of the
+	// language ids
+	public static List<Set<Set<Triple<String, String, String>>>> isolecticAreasToSamplePartitions(Set<IsolecticArea> isolecticAreas) {
+		return isolecticAreasToLanguagePartitions(new IsolecticAreaIndex(isolecticAreas), new String[0], -1).getPartitions();
+	}
+	
+	// the partitions of the given languages in the given order (empty for languages
+	// without areas)
+	public static List<Set<Set<Triple<String, String, String>>>> isolecticAreasToSamplePartitions(Set<IsolecticArea> isolecticAreas, List<String> langIDs) {
+		if (langIDs == null)
+			return isolecticAreasToSamplePartitions(isolecticAreas);
+		LanguagePartitions partitions = isolecticAreasToLanguagePartitions(new IsolecticAreaIndex(isolecticAreas, langIDs), new TreeSet<String>(langIDs), new String[0], -1);
+		Map<String, Integer> langIndices = new HashMap<String, Integer>();
+		for (int langID = 0; langID < partitions.getNumLanguages(); langID++) {
+			langIndices.put(partitions.getLanguage(langID), langID);
 		}
-		else
-		{
-			Map<String,Set<Set<Triple<String, String, String>>>> samplePartitionsPerLang = new TreeMap<String,Set<Set<Triple<String, String, String>>>>();
-
-	        for (IsolecticArea area : isolecticAreas)
-	        {
-	        	Set<Set<Triple<String, String, String>>> samplePartitionForLang = samplePartitionsPerLang.get(area.getLang());
-	        	if (samplePartitionForLang == null) {
-	        		samplePartitionForLang = new HashSet<Set<Triple<String, String, String>>>();
-	        		samplePartitionsPerLang.put(area.getLang(), samplePartitionForLang);
-	        	}
-	        	
-	        	Set<Triple<String, String, String>> tripleSet = new TreeSet<Triple<String, String, String>>();
-	        	for (String concept : area.getConcepts())
-	        	{
-	        		tripleSet.add(new ComparableTriple<String,String, String>(concept, area.getLang(), area.getLemma()));
-	        	}
-
-				samplePartitionForLang.add(tripleSet);
-			}
-			List<Set<Set<Triple<String, String, String>>>> samplePartitions = new ArrayList<Set<Set<Triple<String, String, String>>>>(samplePartitionsPerLang.values());
-	        return samplePartitions;
+		List<Set<Set<Triple<String, String, String>>>> samplePartitions = new ArrayList<Set<Set<Triple<String, String, String>>>>(langIDs.size());
+		for (String lang : langIDs) {
+			samplePartitions.add(partitions.getPartition(langIndices.get(lang)));
 		}
+		return samplePartitions;
 	}
 	
 	public static List<Set<Set<Triple<String, String, String>>>> isolecticAreasToCompleteSamplePartitions(Set<IsolecticArea> isolecticAreas, Set<String> relevantConcepts) {
 		return isolecticAreasToCompleteSamplePartitions(isolecticAreas, relevantConcepts, 0);
 	}
 	
+	// the partitions of the languages with at most maxNumGapsPerLang of the relevant
+	// concepts missing, printing for each language whether it is kept
 	public static List<Set<Set<Triple<String, String, String>>>> isolecticAreasToCompleteSamplePartitions(Set<IsolecticArea> isolecticAreas, Set<String> relevantConcepts, int maxNumGapsPerLang) {
+		String[] concepts = new TreeSet<String>(relevantConcepts).toArray(new String[relevantConcepts.size()]);
+		LanguagePartitions partitions = isolecticAreasToLanguagePartitions(new IsolecticAreaIndex(isolecticAreas), concepts, -1);
+		LanguageCoverage coverage = new LanguageCoverage(partitions);
+		coverage.printReport(System.out, maxNumGapsPerLang);
+		return partitions.select(coverage.getKeptLanguages(maxNumGapsPerLang)).getPartitions();
+	}
+	
+	// the areas are taken from the language postings, and all indexed languages are
+	// included (with empty partitions if they have no areas)
+	public static LanguagePartitions isolecticAreasToLanguagePartitions(IsolecticAreaIndex index, String[] concepts, int maxNumGapsPerLang) {
+		return isolecticAreasToLanguagePartitions(index, null, concepts, maxNumGapsPerLang);
+	}
+	
+	// restricts the population to the given languages (if not null), so that several
+	// analyses with different language selections can share one index
+	public static LanguagePartitions isolecticAreasToLanguagePartitions(IsolecticAreaIndex index, Set<String> languageFilter, String[] concepts, int maxNumGapsPerLang) {
+		List<IsolecticArea> isolecticAreas = new ArrayList<IsolecticArea>();
+		List<String> languageIDs = new ArrayList<String>(index.getLanguages().size());
+		for (int langID = 0; langID < index.getLanguages().size(); langID++) {
+			String lang = index.getLanguages().get(langID);
+			if (languageFilter == null || languageFilter.contains(lang)) {
+				languageIDs.add(lang);
+				for (int areaID : index.getLanguagePostings(langID)) {
+					isolecticAreas.add(index.getArea(areaID));
+				}
+			}
+		}
+		return isolecticAreasToLanguagePartitions(isolecticAreas, languageIDs, concepts, maxNumGapsPerLang);
+	}
+	
+	public static LanguagePartitions isolecticAreasToLanguagePartitions(Collection<IsolecticArea> isolecticAreas, String[] concepts, int maxNumGapsPerLang) {
+		return isolecticAreasToLanguagePartitions(isolecticAreas, null, concepts, maxNumGapsPerLang);
+	}
+	
+	// builds the partitions of all languages once; if maxNumGapsPerLang is negative,
+	// languages are kept regardless of the number of concepts they do not cover
+	// (see LanguageCoverage for a report of the kept and discarded languages);
+	// the languages (if not null) are included even if none of their isolectic areas
+	// are given, e.g. because the reader dropped areas without any selected concepts
+	public static LanguagePartitions isolecticAreasToLanguagePartitions(Collection<IsolecticArea> isolecticAreas, Collection<String> languageIDs, String[] concepts, int maxNumGapsPerLang) {
+		Map<String, Integer> conceptIDs = new HashMap<String, Integer>();
+		for (int i = 0; i < concepts.length; i++) {
+			conceptIDs.put(concepts[i], i);
+		}
+		
 		Map<String,Set<Set<Triple<String, String, String>>>> samplePartitionsPerLang = new TreeMap<String,Set<Set<Triple<String, String, String>>>>();
-		Map<String,Set<String>> coveredConceptsPerLang = new TreeMap<String,Set<String>>();
+		Map<String,List<int[]>> areasPerLang = new TreeMap<String,List<int[]>>();
+		if (languageIDs != null) {
+			for (String lang : languageIDs) {
+				samplePartitionsPerLang.put(lang, new HashSet<Set<Triple<String, String, String>>>());
+				areasPerLang.put(lang, new ArrayList<int[]>());
+			}
+		}
         for (IsolecticArea area : isolecticAreas)
         {
         	Set<Set<Triple<String, String, String>>> samplePartitionForLang = samplePartitionsPerLang.get(area.getLang());
         	if (samplePartitionForLang == null) {
         		samplePartitionForLang = new HashSet<Set<Triple<String, String, String>>>();
         		samplePartitionsPerLang.put(area.getLang(), samplePartitionForLang);
-        		coveredConceptsPerLang.put(area.getLang(), new TreeSet<String>());
+        		areasPerLang.put(area.getLang(), new ArrayList<int[]>());
         	}
         	
         	Set<Triple<String, String, String>> tripleSet = new TreeSet<Triple<String, String, String>>();
+        	int[] areaConcepts = new int[area.getConcepts().size()];
+        	int numAreaConcepts = 0;
         	for (String concept : area.getConcepts())
         	{
         		tripleSet.add(new ComparableTriple<String,String, String>(concept, area.getLang(), area.getLemma()));
-        		coveredConceptsPerLang.get(area.getLang()).add(concept);
+        		Integer conceptID = conceptIDs.get(concept);
+        		if (conceptID != null) {
+        			areaConcepts[numAreaConcepts++] = conceptID;
+        		}
         	}
 
 			samplePartitionForLang.add(tripleSet);
-		}
-		List<Set<Set<Triple<String, String, String>>>> samplePartitions = new ArrayList<Set<Set<Triple<String, String, String>>>>();
-		for (String lang : samplePartitionsPerLang.keySet()) {
-			Set<String> coveredConcepts = coveredConceptsPerLang.get(lang);
-			Set<String> conceptsWithoutData = new TreeSet<String>();
-			for (String relevantConcept : relevantConcepts) {
-				if (!coveredConcepts.contains(relevantConcept)) {
-					conceptsWithoutData.add(relevantConcept);
-				}
-			}
-			if (conceptsWithoutData.size() == 0) {
-				System.out.println("  " + lang + " data included, all concepts are covered.");
-				samplePartitions.add(samplePartitionsPerLang.get(lang));
-			} else if (conceptsWithoutData.size() <= maxNumGapsPerLang) {
-				System.out.println("  " + lang + " data included, number of gaps is " + conceptsWithoutData.size());
-				samplePartitions.add(samplePartitionsPerLang.get(lang));
-			} else if (conceptsWithoutData.size() <= 5) {
-				System.out.println("  " + lang + " data discarded due to gaps for " + conceptsWithoutData.size() + " concepts: " + String.join(", ", conceptsWithoutData));
-			} else {
-				System.out.println("  " + lang + " data discarded due to gaps for " + conceptsWithoutData.size() + " concepts.");
+			if (numAreaConcepts > 0) {
+				areaConcepts = Arrays.copyOf(areaConcepts, numAreaConcepts);
+				Arrays.sort(areaConcepts);
+				areasPerLang.get(area.getLang()).add(areaConcepts);
 			}
 		}
-		return samplePartitions;
+        
+		List<String> languages = new ArrayList<String>(samplePartitionsPerLang.keySet());
+		int[][][] areas = new int[languages.size()][][];
+		for (int langID = 0; langID < areas.length; langID++) {
+			areas[langID] = areasPerLang.get(languages.get(langID)).toArray(new int[0][]);
+		}
+		LanguagePartitions partitions = new LanguagePartitions(languages.toArray(new String[languages.size()]),
+				concepts, areas, new ArrayList<Set<Set<Triple<String, String, String>>>>(samplePartitionsPerLang.values()));
+		if (maxNumGapsPerLang < 0)
+			return partitions;
+		return partitions.select(new LanguageCoverage(partitions).getKeptLanguages(maxNumGapsPerLang));
 	}
 }
@@ -0,0 +1,271 @@
+package de.tuebingen.sfs.lextyp.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.StringDictionary;
+
+// binary, memory-mappable version of an isolectic area file; layout:
+//   magic, version
+//   dictionaries for languages, lemmas and concepts (count, offsets, UTF-8 bytes)
+//   number of areas, offsets of the area records, area records (language id,
+//   lemma id, number of concepts, concept ids), with areas grouped by language
+//   posting list for each concept (number of areas, area ids)
+public class IsolecticAreaCache {
+
+	// the first byte cannot start a line of UTF-8 text, so TSV files are never mistaken for caches
+	static final int MAGIC = 0x89495341; // "\x89ISA"
+	static final int VERSION = 1;
+
+	public static boolean isCacheFile(String fileName) throws IOException {
+		try (InputStream in = Files.newInputStream(Paths.get(fileName))) {
+			DataInputStream data = new DataInputStream(in);
+			return data.readInt() == MAGIC;
+		} catch (java.io.EOFException e) {
+			return false;
+		}
+	}
+
+	public static void write(Collection<IsolecticArea> isolecticAreas, String fileName) throws IOException {
+		StringDictionary languages = new StringDictionary();
+		StringDictionary lemmas = new StringDictionary();
+		StringDictionary concepts = new StringDictionary();
+		Set<String> sortedLanguages = new TreeSet<String>();
+		Set<String> sortedConcepts = new TreeSet<String>();
+		for (IsolecticArea area : isolecticAreas) {
+			sortedLanguages.add(area.getLang());
+			sortedConcepts.addAll(area.getConcepts());
+		}
+		for (String lang : sortedLanguages) {
+			languages.intern(lang);
+		}
+		for (String concept : sortedConcepts) {
+			concepts.intern(concept);
+		}
+
+		List<IsolecticArea> areas = new ArrayList<IsolecticArea>(isolecticAreas);
+		areas.sort((a1, a2) -> {
+			int comp = a1.getLang().compareTo(a2.getLang());
+			return comp != 0 ? comp : a1.getLemma().compareTo(a2.getLemma());
+		});
+		int[][] postings = new int[concepts.size()][];
+		int[] postingSizes = new int[concepts.size()];
+		for (int i = 0; i < postings.length; i++) {
+			postings[i] = new int[4];
+		}
+		int[] areaOffsets = new int[areas.size()];
+		int offset = 0;
+		for (int areaID = 0; areaID < areas.size(); areaID++) {
+			IsolecticArea area = areas.get(areaID);
+			lemmas.intern(area.getLemma());
+			areaOffsets[areaID] = offset;
+			offset += 12 + 4 * area.getConcepts().size();
+			for (String concept : area.getConcepts()) {
+				int conceptID = concepts.lookup(concept);
+				if (postingSizes[conceptID] == postings[conceptID].length) {
+					postings[conceptID] = Arrays.copyOf(postings[conceptID], 2 * postingSizes[conceptID]);
+				}
+				postings[conceptID][postingSizes[conceptID]++] = areaID;
+			}
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName)), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeDictionary(out, languages);
+			writeDictionary(out, lemmas);
+			writeDictionary(out, concepts);
+			out.writeInt(areas.size());
+			for (int areaOffset : areaOffsets) {
+				out.writeInt(areaOffset);
+			}
+			for (IsolecticArea area : areas) {
+				out.writeInt(languages.lookup(area.getLang()));
+				out.writeInt(lemmas.lookup(area.getLemma()));
+				out.writeInt(area.getConcepts().size());
+				for (String concept : area.getConcepts()) {
+					out.writeInt(concepts.lookup(concept));
+				}
+			}
+			for (int conceptID = 0; conceptID < postings.length; conceptID++) {
+				out.writeInt(postingSizes[conceptID]);
+				for (int i = 0; i < postingSizes[conceptID]; i++) {
+					out.writeInt(postings[conceptID][i]);
+				}
+			}
+		}
+	}
+
+	private static void writeDictionary(DataOutputStream out, StringDictionary dict) throws IOException {
+		byte[][] encoded = new byte[dict.size()][];
+		out.writeInt(dict.size());
+		int offset = 0;
+		for (int i = 0; i < dict.size(); i++) {
+			encoded[i] = dict.get(i).getBytes(StandardCharsets.UTF_8);
+			out.writeInt(offset);
+			offset += encoded[i].length;
+		}
+		out.writeInt(offset);
+		for (byte[] bytes : encoded) {
+			out.write(bytes);
+		}
+	}
+
+	// same semantics as IsolecticAreaReader.streamFromFile(), but only the areas in
+	// the posting lists of the selected concepts are decoded
+	public static void streamFromFile(String fileName, Set<String> conceptFilter, Set<String> languageFilter,
+			Map<String, String> substitutions, Consumer<IsolecticArea> areaConsumer,
+			Consumer<String> languageConsumer) throws FileNotFoundException, IOException {
+		Path path = Paths.get(fileName);
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Isolectic area cache too large to be mapped: " + fileName);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not an isolectic area cache file: " + fileName);
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported isolectic area cache version " + version + " in " + fileName);
+		}
+
+		String[] languages = decodeDictionary(buffer);
+		int lemmaDictionary = buffer.position();
+		skipDictionary(buffer);
+		String[] concepts = decodeDictionary(buffer);
+		int numAreas = buffer.getInt();
+		int areaOffsetTable = buffer.position();
+		int areaRecords = areaOffsetTable + 4 * numAreas;
+
+		boolean[] selectedLanguages = new boolean[languages.length];
+		for (int langID = 0; langID < languages.length; langID++) {
+			selectedLanguages[langID] = languageFilter == null || languageFilter.contains(languages[langID]);
+			if (selectedLanguages[langID] && languageConsumer != null) {
+				languageConsumer.accept(languages[langID]);
+			}
+		}
+
+		int[] areaIDs;
+		if (conceptFilter == null) {
+			areaIDs = new int[numAreas];
+			for (int i = 0; i < numAreas; i++) {
+				areaIDs[i] = i;
+			}
+		} else {
+			// posting lists start after the last area record
+			int lastOffset = numAreas == 0 ? 0 : buffer.getInt(areaOffsetTable + 4 * (numAreas - 1));
+			int postingPos = areaRecords;
+			if (numAreas > 0) {
+				postingPos += lastOffset + 12 + 4 * buffer.getInt(areaRecords + lastOffset + 8);
+			}
+			// as in the TSV reader, the filter applies to the substituted concepts
+			boolean[] selectedConcepts = new boolean[concepts.length];
+			for (int conceptID = 0; conceptID < concepts.length; conceptID++) {
+				String concept = concepts[conceptID];
+				if (substitutions != null && substitutions.containsKey(concept)) {
+					concept = substitutions.get(concept);
+				}
+				selectedConcepts[conceptID] = conceptFilter.contains(concept);
+			}
+			boolean[] selectedAreas = new boolean[numAreas];
+			int numSelected = 0;
+			for (int conceptID = 0; conceptID < concepts.length; conceptID++) {
+				int postingSize = buffer.getInt(postingPos);
+				if (selectedConcepts[conceptID]) {
+					for (int i = 0; i < postingSize; i++) {
+						int areaID = buffer.getInt(postingPos + 4 + 4 * i);
+						if (!selectedAreas[areaID]) {
+							selectedAreas[areaID] = true;
+							numSelected++;
+						}
+					}
+				}
+				postingPos += 4 + 4 * postingSize;
+			}
+			areaIDs = new int[numSelected];
+			numSelected = 0;
+			for (int areaID = 0; areaID < numAreas; areaID++) {
+				if (selectedAreas[areaID]) {
+					areaIDs[numSelected++] = areaID;
+				}
+			}
+		}
+
+		for (int areaID : areaIDs) {
+			int pos = areaRecords + buffer.getInt(areaOffsetTable + 4 * areaID);
+			int langID = buffer.getInt(pos);
+			if (!selectedLanguages[langID])
+				continue;
+			String lemma = decodeString(buffer, lemmaDictionary, buffer.getInt(pos + 4));
+			int numConcepts = buffer.getInt(pos + 8);
+			Set<String> areaConcepts = new TreeSet<String>();
+			for (int i = 0; i < numConcepts; i++) {
+				String concept = concepts[buffer.getInt(pos + 12 + 4 * i)];
+				if (substitutions != null && substitutions.containsKey(concept)) {
+					concept = substitutions.get(concept);
+				}
+				areaConcepts.add(concept);
+			}
+			areaConsumer.accept(new IsolecticArea(languages[langID], lemma, areaConcepts));
+		}
+	}
+
+	private static String[] decodeDictionary(ByteBuffer buffer) {
+		int start = buffer.position();
+		int size = buffer.getInt();
+		String[] strings = new String[size];
+		for (int id = 0; id < size; id++) {
+			strings[id] = decodeString(buffer, start, id);
+		}
+		skipDictionary(buffer, start);
+		return strings;
+	}
+
+	private static void skipDictionary(ByteBuffer buffer) {
+		skipDictionary(buffer, buffer.position());
+	}
+
+	private static void skipDictionary(ByteBuffer buffer, int start) {
+		int size = buffer.getInt(start);
+		int numBytes = buffer.getInt(start + 4 + 4 * size);
+		buffer.position(start + 8 + 4 * size + numBytes);
+	}
+
+	// decodes a single string from the dictionary starting at the given position
+	private static String decodeString(ByteBuffer buffer, int dictionary, int id) {
+		int size = buffer.getInt(dictionary);
+		int bytes = dictionary + 8 + 4 * size;
+		int from = buffer.getInt(dictionary + 4 + 4 * id);
+		int to = buffer.getInt(dictionary + 8 + 4 * id);
+		byte[] encoded = new byte[to - from];
+		for (int i = 0; i < encoded.length; i++) {
+			encoded[i] = buffer.get(bytes + from + i);
+		}
+		return new String(encoded, StandardCharsets.UTF_8);
+	}
+}
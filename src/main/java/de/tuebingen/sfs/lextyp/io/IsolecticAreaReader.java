@@ -1,18 +1,27 @@
 package de.tuebingen.sfs.lextyp.io;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
 import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
-import de.tuebingen.sfs.util.io.ListReader;
 
 public class IsolecticAreaReader {
 	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
 	public static Set<IsolecticArea> loadFromFile(String fileName)
 			throws FileNotFoundException, IOException {
 		return loadFromFileWithSubstitutions(fileName, null);
@@ -21,25 +30,119 @@ public class IsolecticAreaReader {
 	public static Set<IsolecticArea> loadFromFileWithSubstitutions(String fileName, Map<String, String> substitutions)
 			throws FileNotFoundException, IOException {
 		Set<IsolecticArea> areas = new HashSet<IsolecticArea>();
-		List<String[]> areaLines = ListReader.arrayFromTSV(fileName);
-		for (String[] areaLine : areaLines) {
-			if (areaLine.length > 2 && areaLine[2].length() > 2)
-			{
-				String lang = areaLine[0];
-				String lemma = areaLine[1];
-				String conceptsList = areaLine[2].substring(1,areaLine[2].length() - 1);
-				Set<String> concepts = new TreeSet<String>();
-				for (String concept : conceptsList.split(", ")) {
+		streamFromFile(fileName, null, null, substitutions, areas::add, null);
+		return areas;
+	}
+
+	// only keeps isolectic areas which contain at least one of the selected concepts
+	// (if conceptFilter is not null) and belong to one of the selected languages (if
+	// languageFilter is not null); all languages which pass the language filter are
+	// collected in languages (if not null), even if none of their areas were kept
+	public static Set<IsolecticArea> loadFromFile(String fileName, Set<String> conceptFilter,
+			Set<String> languageFilter, Set<String> languages) throws FileNotFoundException, IOException {
+		Set<IsolecticArea> areas = new HashSet<IsolecticArea>();
+		streamFromFile(fileName, conceptFilter, languageFilter, null, areas::add,
+				languages == null ? null : languages::add);
+		return areas;
+	}
+
+	// reads the (filtered) areas directly into an index of interned areas, without
+	// keeping string-based areas around
+	public static IsolecticAreaIndex loadIndexFromFile(String fileName, Set<String> conceptFilter,
+			Set<String> languageFilter) throws FileNotFoundException, IOException {
+		IsolecticAreaIndex.Builder builder = new IsolecticAreaIndex.Builder();
+		streamFromFile(fileName, conceptFilter, languageFilter, null, builder, builder::addLanguage);
+		return builder.build();
+	}
+
+	public static void streamFromFile(String fileName, Set<String> conceptFilter, Set<String> languageFilter,
+			Map<String, String> substitutions, Consumer<IsolecticArea> areaConsumer)
+			throws FileNotFoundException, IOException {
+		streamFromFile(fileName, conceptFilter, languageFilter, substitutions, areaConsumer, null);
+	}
+
+	// parses the file line by line, dropping irrelevant rows before any sets are built;
+	// binary caches written by IsolecticAreaCache are detected and read directly
+	public static void streamFromFile(String fileName, Set<String> conceptFilter, Set<String> languageFilter,
+			Map<String, String> substitutions, Consumer<IsolecticArea> areaConsumer,
+			Consumer<String> languageConsumer) throws FileNotFoundException, IOException {
+		if (IsolecticAreaCache.isCacheFile(fileName)) {
+			IsolecticAreaCache.streamFromFile(fileName, conceptFilter, languageFilter, substitutions, areaConsumer,
+					languageConsumer);
+			return;
+		}
+		try (BufferedReader in = new BufferedReader(
+				new InputStreamReader(Files.newInputStream(Paths.get(fileName)), StandardCharsets.UTF_8),
+				BUFFER_SIZE)) {
+			streamLines(in, conceptFilter, languageFilter, substitutions, areaConsumer, languageConsumer);
+		}
+	}
+
+	// a checksum over all bytes of the file, which serves to recognize whether a file
+	// has changed anywhere since it was read
+	public static long fileChecksum(String fileName) throws IOException {
+		try (InputStream in = Files.newInputStream(Paths.get(fileName))) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			CRC32 crc = new CRC32();
+			int len;
+			while ((len = in.read(buffer)) >= 0) {
+				crc.update(buffer, 0, len);
+			}
+			return crc.getValue();
+		}
+	}
+
+	private static void streamLines(BufferedReader in, Set<String> conceptFilter, Set<String> languageFilter,
+			Map<String, String> substitutions, Consumer<IsolecticArea> areaConsumer,
+			Consumer<String> languageConsumer) throws IOException {
+		String previousLang = null;
+		String line;
+		while ((line = in.readLine()) != null) {
+			int langEnd = line.indexOf('\t');
+			if (langEnd < 0)
+				continue;
+			int lemmaEnd = line.indexOf('\t', langEnd + 1);
+			if (lemmaEnd < 0)
+				continue;
+			int conceptsEnd = line.indexOf('\t', lemmaEnd + 1);
+			if (conceptsEnd < 0)
+				conceptsEnd = line.length();
+			if (conceptsEnd - lemmaEnd - 1 <= 2)
+				continue;
+
+			String lang = line.substring(0, langEnd);
+			if (languageFilter != null && !languageFilter.contains(lang))
+				continue;
+			// input files are usually grouped by language, which saves most lookups
+			if (languageConsumer != null && !lang.equals(previousLang)) {
+				languageConsumer.accept(lang);
+				previousLang = lang;
+			}
+
+			Set<String> concepts = new TreeSet<String>();
+			boolean relevant = (conceptFilter == null);
+			int start = lemmaEnd + 2;
+			int end = conceptsEnd - 1;
+			while (start <= end) {
+				int sep = line.indexOf(", ", start);
+				if (sep < 0 || sep > end)
+					sep = end;
+				if (sep > start) {
+					String concept = line.substring(start, sep);
 					if (substitutions != null && substitutions.containsKey(concept)) {
 						concept = substitutions.get(concept);
 					}
+					if (!relevant && conceptFilter.contains(concept)) {
+						relevant = true;
+					}
 					concepts.add(concept);
 				}
-				concepts.remove("");
-				IsolecticArea area = new IsolecticArea(lang, lemma, concepts);
-				areas.add(area);
+				start = sep + 2;
 			}
+			concepts.remove("");
+			if (!relevant)
+				continue;
+			areaConsumer.accept(new IsolecticArea(lang, line.substring(langEnd + 1, lemmaEnd), concepts));
 		}
-		return areas;
 	}
 }
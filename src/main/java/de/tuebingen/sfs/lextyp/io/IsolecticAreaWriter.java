@@ -0,0 +1,29 @@
+package de.tuebingen.sfs.lextyp.io;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+
+// writes isolectic areas in the TSV format read by IsolecticAreaReader
+public class IsolecticAreaWriter {
+
+	public static void writeToFile(Collection<IsolecticArea> isolecticAreas, String fileName) throws IOException {
+		try (Writer out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), 1 << 16)) {
+			for (IsolecticArea area : isolecticAreas) {
+				out.write(area.getLang());
+				out.write('\t');
+				out.write(area.getLemma());
+				out.write("\t{");
+				out.write(String.join(", ", area.getConcepts()));
+				out.write("}\n");
+			}
+		}
+	}
+}
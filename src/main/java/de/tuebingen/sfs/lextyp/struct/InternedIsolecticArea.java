@@ -0,0 +1,91 @@
+package de.tuebingen.sfs.lextyp.struct;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+// compact variant of IsolecticArea with interned language, lemma and concept ids
+public class InternedIsolecticArea {
+
+	final int lang;
+	final int lemma;
+	final int[] concepts;
+	final int hash;
+
+	// the concept ids must be sorted
+	public InternedIsolecticArea(int lang, int lemma, int[] concepts) {
+		this.lang = lang;
+		this.lemma = lemma;
+		this.concepts = concepts;
+		this.hash = computeHash();
+	}
+
+	public static InternedIsolecticArea intern(IsolecticArea area, StringDictionary languages,
+			StringDictionary lemmas, StringDictionary concepts) {
+		int[] conceptIDs = new int[area.getConcepts().size()];
+		int i = 0;
+		for (String concept : area.getConcepts()) {
+			conceptIDs[i++] = concepts.intern(concept);
+		}
+		Arrays.sort(conceptIDs);
+		return new InternedIsolecticArea(languages.intern(area.getLang()), lemmas.intern(area.getLemma()),
+				conceptIDs);
+	}
+
+	public IsolecticArea toIsolecticArea(StringDictionary languages, StringDictionary lemmas,
+			StringDictionary conceptDict) {
+		Set<String> conceptNames = new TreeSet<String>();
+		for (int concept : concepts) {
+			conceptNames.add(conceptDict.get(concept));
+		}
+		return new IsolecticArea(languages.get(lang), lemmas.get(lemma), conceptNames);
+	}
+
+	public int getLang() {
+		return lang;
+	}
+
+	public int getLemma() {
+		return lemma;
+	}
+
+	public int[] getConcepts() {
+		return concepts;
+	}
+
+	public boolean containsConcept(int concept) {
+		return Arrays.binarySearch(concepts, concept) >= 0;
+	}
+
+	private int computeHash() {
+		int h = lang * 0x9e3779b9 + lemma;
+		for (int concept : concepts) {
+			h = 31 * h + concept;
+		}
+		// final avalanche step of MurmurHash3
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	public int hashCode() {
+		return hash;
+	}
+
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof InternedIsolecticArea))
+			return false;
+		InternedIsolecticArea otherArea = (InternedIsolecticArea) o;
+		return hash == otherArea.hash && lang == otherArea.lang && lemma == otherArea.lemma
+				&& Arrays.equals(concepts, otherArea.concepts);
+	}
+
+	public String toString() {
+		return lang + "\t" + lemma + "\t" + Arrays.toString(concepts);
+	}
+}
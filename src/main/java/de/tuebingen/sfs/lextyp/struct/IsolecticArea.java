@@ -32,7 +32,7 @@ public class IsolecticArea
 	
 	public int hashCode()
 	{
-		return lang.hashCode() * lemma.hashCode();
+		return 31 * lang.hashCode() + lemma.hashCode();
 	}
 	
 	public boolean equals(Object o)
@@ -47,7 +47,7 @@ public class IsolecticArea
 	public boolean equals(IsolecticArea otherArea)
 	{
 		return lang.equals(otherArea.getLang()) && lemma.equals(otherArea.getLemma())
-				&& concepts.containsAll(otherArea.getConcepts()) && otherArea.getConcepts().containsAll(concepts);
+				&& concepts.equals(otherArea.getConcepts());
 	}
 	
 	public String toString()
@@ -0,0 +1,92 @@
+package de.tuebingen.sfs.lextyp.struct;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// the selected concepts covered by the isolectic areas of each language, as bitsets
+// computed once (in parallel over the languages), so that the languages kept by any
+// gap threshold can be determined without looking at the areas again
+public class LanguageCoverage {
+
+	// languages with more gaps are only reported with their number of gaps
+	private static final int MAX_LISTED_GAPS = 5;
+
+	final String[] languages;
+	final String[] concepts;
+	final int words;
+	// the concepts covered by language l are the bits of covered[l * words ...]
+	final long[] covered;
+	final int[] numGaps;
+
+	public LanguageCoverage(LanguagePartitions partitions) {
+		this.languages = partitions.getLanguages();
+		this.concepts = partitions.getConcepts();
+		this.words = (concepts.length + 63) >>> 6;
+		this.covered = new long[languages.length * words];
+		this.numGaps = new int[languages.length];
+		IntStream.range(0, languages.length).parallel().forEach(langID -> {
+			int offset = langID * words;
+			for (int[] area : partitions.getAreas(langID)) {
+				for (int concept : area) {
+					covered[offset + (concept >>> 6)] |= 1L << concept;
+				}
+			}
+			int numCovered = 0;
+			for (int word = 0; word < words; word++) {
+				numCovered += Long.bitCount(covered[offset + word]);
+			}
+			numGaps[langID] = concepts.length - numCovered;
+		});
+	}
+
+	public int getNumLanguages() {
+		return languages.length;
+	}
+
+	public int getNumGaps(int langID) {
+		return numGaps[langID];
+	}
+
+	public boolean isCovered(int langID, int concept) {
+		return (covered[langID * words + (concept >>> 6)] & (1L << concept)) != 0;
+	}
+
+	public List<String> getGapConcepts(int langID) {
+		List<String> gapConcepts = new ArrayList<String>(numGaps[langID]);
+		for (int concept = 0; concept < concepts.length; concept++) {
+			if (!isCovered(langID, concept)) {
+				gapConcepts.add(concepts[concept]);
+			}
+		}
+		return gapConcepts;
+	}
+
+	// a negative threshold keeps all languages
+	public boolean isKept(int langID, int maxNumGaps) {
+		return maxNumGaps < 0 || numGaps[langID] <= maxNumGaps;
+	}
+
+	// the ids of the languages kept by the threshold, in ascending order
+	public int[] getKeptLanguages(int maxNumGaps) {
+		return IntStream.range(0, languages.length).filter(langID -> isKept(langID, maxNumGaps)).toArray();
+	}
+
+	// one line per language, stating whether it is kept and why
+	public void printReport(PrintStream out, int maxNumGaps) {
+		for (int langID = 0; langID < languages.length; langID++) {
+			String lang = languages[langID];
+			if (numGaps[langID] == 0) {
+				out.println("  " + lang + " data included, all concepts are covered.");
+			} else if (isKept(langID, maxNumGaps)) {
+				out.println("  " + lang + " data included, number of gaps is " + numGaps[langID]);
+			} else if (numGaps[langID] <= MAX_LISTED_GAPS) {
+				out.println("  " + lang + " data discarded due to gaps for " + numGaps[langID] + " concepts: "
+						+ String.join(", ", getGapConcepts(langID)));
+			} else {
+				out.println("  " + lang + " data discarded due to gaps for " + numGaps[langID] + " concepts.");
+			}
+		}
+	}
+}
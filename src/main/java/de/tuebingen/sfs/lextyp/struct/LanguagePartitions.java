@@ -0,0 +1,111 @@
+package de.tuebingen.sfs.lextyp.struct;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.util.struct.Triple;
+
+// stores the partition of each language once, both in the boxed form expected by the
+// unit flow criterion and as int-encoded isolectic areas over the selected concepts;
+// a bootstrap sample is then just an array of language indices
+public class LanguagePartitions {
+
+	String[] languages;
+	String[] concepts;
+	int[][][] areas;
+	List<Set<Set<Triple<String, String, String>>>> partitions;
+
+	public LanguagePartitions(String[] languages, String[] concepts, int[][][] areas,
+			List<Set<Set<Triple<String, String, String>>>> partitions) {
+		this.languages = languages;
+		this.concepts = concepts;
+		this.areas = areas;
+		this.partitions = partitions;
+	}
+
+	public int getNumLanguages() {
+		return languages.length;
+	}
+
+	public String getLanguage(int langID) {
+		return languages[langID];
+	}
+
+	public String[] getLanguages() {
+		return languages;
+	}
+
+	public String[] getConcepts() {
+		return concepts;
+	}
+
+	// isolectic areas of the language as sorted arrays of concept ids (areas without
+	// any of the selected concepts are left out)
+	public int[][] getAreas(int langID) {
+		return areas[langID];
+	}
+
+	public Set<Set<Triple<String, String, String>>> getPartition(int langID) {
+		return partitions.get(langID);
+	}
+
+	public List<Set<Set<Triple<String, String, String>>>> getPartitions() {
+		return partitions;
+	}
+
+	// the partitions of the given languages only (e.g. those kept by a gap threshold),
+	// sharing the areas and sets of this object
+	public LanguagePartitions select(int[] langIDs) {
+		String[] selectedLanguages = new String[langIDs.length];
+		int[][][] selectedAreas = new int[langIDs.length][][];
+		List<Set<Set<Triple<String, String, String>>>> selectedPartitions = new ArrayList<Set<Set<Triple<String, String, String>>>>(
+				langIDs.length);
+		for (int i = 0; i < langIDs.length; i++) {
+			selectedLanguages[i] = languages[langIDs[i]];
+			selectedAreas[i] = areas[langIDs[i]];
+			selectedPartitions.add(partitions.get(langIDs[i]));
+		}
+		return new LanguagePartitions(selectedLanguages, concepts, selectedAreas, selectedPartitions);
+	}
+
+	public int[] resample(SplittableRandom random) {
+		int[] sample = new int[languages.length];
+		for (int i = 0; i < sample.length; i++) {
+			sample[i] = random.nextInt(languages.length);
+		}
+		return sample;
+	}
+
+	public int[] multiplicities(int[] sample) {
+		int[] multiplicities = new int[languages.length];
+		for (int langID : sample) {
+			multiplicities[langID]++;
+		}
+		return multiplicities;
+	}
+
+	// view of the sampled languages' partitions, without copying any sets
+	public List<Set<Set<Triple<String, String, String>>>> samplePartitions(int[] sample) {
+		return new SampleView(sample);
+	}
+
+	private class SampleView extends AbstractList<Set<Set<Triple<String, String, String>>>> implements RandomAccess {
+		final int[] sample;
+
+		SampleView(int[] sample) {
+			this.sample = sample;
+		}
+
+		public Set<Set<Triple<String, String, String>>> get(int index) {
+			return partitions.get(sample[index]);
+		}
+
+		public int size() {
+			return sample.length;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package de.tuebingen.sfs.lextyp.struct;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// the number of isolectic areas in which each pair of selected concepts is
+// colexified, broken down by language: the nonzero counts of each language are
+// stored as a sparse vector over the packed upper triangle of the concept matrix
+// (see pairIndex()), and the counts of a bootstrap sample are obtained by summing
+// these vectors weighted by the language multiplicities, without looking at the
+// areas again; the vectors are computed in one parallel pass over the languages,
+// and can be stored, so that later runs on the same input skip this pass
+public class PairCountMatrix {
+
+	static final int MAGIC = 0x8950434D; // "\x89PCM"
+	static final int VERSION = 2;
+
+	final String[] concepts;
+	final String[] languages;
+	// the vector of language l consists of the entries langOffsets[l] to langOffsets[l + 1] - 1
+	final int[] langOffsets;
+	final int[] pairs;
+	final int[] counts;
+	// the counts over all languages
+	final long[] totals;
+
+	// the input from which the counts were computed (see setInput())
+	long inputLength;
+	long inputModified;
+	long inputChecksum;
+
+	PairCountMatrix(String[] concepts, String[] languages, int[] langOffsets, int[] pairs, int[] counts) {
+		this.concepts = concepts;
+		this.languages = languages;
+		this.langOffsets = langOffsets;
+		this.pairs = pairs;
+		this.counts = counts;
+		this.totals = new long[numPairs(concepts.length)];
+		for (int i = 0; i < pairs.length; i++) {
+			totals[pairs[i]] += counts[i];
+		}
+	}
+
+	public static PairCountMatrix fromLanguagePartitions(LanguagePartitions partitions) {
+		String[] concepts = partitions.getConcepts();
+		int numConcepts = concepts.length;
+		int numLanguages = partitions.getNumLanguages();
+		int[][] languagePairs = new int[numLanguages][];
+		int[][] languageCounts = new int[numLanguages][];
+		IntStream.range(0, numLanguages).parallel().forEach(langID -> {
+			int numAreaPairs = 0;
+			for (int[] area : partitions.getAreas(langID)) {
+				numAreaPairs += area.length * (area.length - 1) / 2;
+			}
+			int[] areaPairs = new int[numAreaPairs];
+			numAreaPairs = 0;
+			// the concepts of an area are sorted, so x < y
+			for (int[] area : partitions.getAreas(langID)) {
+				for (int i = 0; i < area.length; i++) {
+					for (int j = i + 1; j < area.length; j++) {
+						areaPairs[numAreaPairs++] = pairIndex(area[i], area[j], numConcepts);
+					}
+				}
+			}
+			Arrays.sort(areaPairs);
+			int numEntries = 0;
+			int[] entryCounts = new int[areaPairs.length];
+			for (int i = 0; i < areaPairs.length; i++) {
+				if (numEntries > 0 && areaPairs[numEntries - 1] == areaPairs[i]) {
+					entryCounts[numEntries - 1]++;
+				} else {
+					areaPairs[numEntries] = areaPairs[i];
+					entryCounts[numEntries++] = 1;
+				}
+			}
+			languagePairs[langID] = Arrays.copyOf(areaPairs, numEntries);
+			languageCounts[langID] = Arrays.copyOf(entryCounts, numEntries);
+		});
+		return concatenate(concepts, partitions.getLanguages(), languagePairs, languageCounts);
+	}
+
+	private static PairCountMatrix concatenate(String[] concepts, String[] languages, int[][] languagePairs,
+			int[][] languageCounts) {
+		int[] langOffsets = new int[languages.length + 1];
+		for (int langID = 0; langID < languages.length; langID++) {
+			langOffsets[langID + 1] = langOffsets[langID] + languagePairs[langID].length;
+		}
+		int[] pairs = new int[langOffsets[languages.length]];
+		int[] counts = new int[pairs.length];
+		for (int langID = 0; langID < languages.length; langID++) {
+			System.arraycopy(languagePairs[langID], 0, pairs, langOffsets[langID], languagePairs[langID].length);
+			System.arraycopy(languageCounts[langID], 0, counts, langOffsets[langID], languageCounts[langID].length);
+		}
+		return new PairCountMatrix(concepts, languages, langOffsets, pairs, counts);
+	}
+
+	// the position of the pair x < y in the packed upper triangle of an n x n matrix
+	public static int pairIndex(int x, int y, int n) {
+		return x * (2 * n - x - 1) / 2 + (y - x - 1);
+	}
+
+	public static int numPairs(int n) {
+		return n * (n - 1) / 2;
+	}
+
+	public String[] getConcepts() {
+		return concepts;
+	}
+
+	public String[] getLanguages() {
+		return languages;
+	}
+
+	public int getNumLanguages() {
+		return languages.length;
+	}
+
+	// the number of areas colexifying x and y over all languages
+	public long getCount(int x, int y) {
+		if (x > y)
+			return getCount(y, x);
+		return totals[pairIndex(x, y, concepts.length)];
+	}
+
+	// the number of areas of the given language colexifying x and y
+	public int getCount(int langID, int x, int y) {
+		if (x > y)
+			return getCount(langID, y, x);
+		int pair = pairIndex(x, y, concepts.length);
+		int entry = Arrays.binarySearch(pairs, langOffsets[langID], langOffsets[langID + 1], pair);
+		return entry < 0 ? 0 : counts[entry];
+	}
+
+	// the packed counts of the sample with the given language multiplicities
+	public long[] sumCounts(int[] multiplicities) {
+		long[] sampleCounts = new long[totals.length];
+		for (int langID = 0; langID < languages.length; langID++) {
+			int multiplicity = multiplicities[langID];
+			if (multiplicity == 0)
+				continue;
+			for (int entry = langOffsets[langID]; entry < langOffsets[langID + 1]; entry++) {
+				sampleCounts[pairs[entry]] += (long) multiplicity * counts[entry];
+			}
+		}
+		return sampleCounts;
+	}
+
+	// the counts of the given languages only, in the order of LanguagePartitions.select()
+	public PairCountMatrix select(int[] langIDs) {
+		String[] selectedLanguages = new String[langIDs.length];
+		int[][] selectedPairs = new int[langIDs.length][];
+		int[][] selectedCounts = new int[langIDs.length][];
+		for (int i = 0; i < langIDs.length; i++) {
+			int from = langOffsets[langIDs[i]];
+			int to = langOffsets[langIDs[i] + 1];
+			selectedLanguages[i] = languages[langIDs[i]];
+			selectedPairs[i] = Arrays.copyOfRange(pairs, from, to);
+			selectedCounts[i] = Arrays.copyOfRange(counts, from, to);
+		}
+		return concatenate(concepts, selectedLanguages, selectedPairs, selectedCounts);
+	}
+
+	// records the length, modification time and checksum (over the whole file) of the
+	// input file, which a stored matrix must match in order to be reused
+	public void setInput(long inputLength, long inputModified, long inputChecksum) {
+		this.inputLength = inputLength;
+		this.inputModified = inputModified;
+		this.inputChecksum = inputChecksum;
+	}
+
+	public long getInputLength() {
+		return inputLength;
+	}
+
+	public long getInputModified() {
+		return inputModified;
+	}
+
+	public long getInputChecksum() {
+		return inputChecksum;
+	}
+
+	public void writeToFile(String fileName) throws IOException {
+		Path path = Paths.get(fileName);
+		Path tmpPath = Paths.get(fileName + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tmpPath), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(inputLength);
+			out.writeLong(inputModified);
+			out.writeLong(inputChecksum);
+			out.writeInt(concepts.length);
+			for (String concept : concepts) {
+				out.writeUTF(concept);
+			}
+			out.writeInt(languages.length);
+			for (int langID = 0; langID < languages.length; langID++) {
+				out.writeUTF(languages[langID]);
+				out.writeInt(langOffsets[langID + 1] - langOffsets[langID]);
+				for (int entry = langOffsets[langID]; entry < langOffsets[langID + 1]; entry++) {
+					out.writeInt(pairs[entry]);
+					out.writeInt(counts[entry]);
+				}
+			}
+		}
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public static PairCountMatrix readFromFile(String fileName) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(Paths.get(fileName)), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a pair count file: " + fileName);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported pair count version " + version + " in " + fileName);
+			}
+			long inputLength = in.readLong();
+			long inputModified = in.readLong();
+			long inputChecksum = in.readLong();
+			String[] concepts = new String[in.readInt()];
+			for (int i = 0; i < concepts.length; i++) {
+				concepts[i] = in.readUTF();
+			}
+			String[] languages = new String[in.readInt()];
+			int[][] languagePairs = new int[languages.length][];
+			int[][] languageCounts = new int[languages.length][];
+			for (int langID = 0; langID < languages.length; langID++) {
+				languages[langID] = in.readUTF();
+				int numEntries = in.readInt();
+				languagePairs[langID] = new int[numEntries];
+				languageCounts[langID] = new int[numEntries];
+				for (int entry = 0; entry < numEntries; entry++) {
+					languagePairs[langID][entry] = in.readInt();
+					languageCounts[langID][entry] = in.readInt();
+				}
+			}
+			PairCountMatrix matrix = concatenate(concepts, languages, languagePairs, languageCounts);
+			matrix.setInput(inputLength, inputModified, inputChecksum);
+			return matrix;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package de.tuebingen.sfs.lextyp.struct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// interns strings (languages, lemmas, concepts) as consecutive int ids
+public class StringDictionary {
+
+	Map<String, Integer> stringToID;
+	List<String> idToString;
+
+	public StringDictionary() {
+		stringToID = new HashMap<String, Integer>();
+		idToString = new ArrayList<String>();
+	}
+
+	public int intern(String string) {
+		Integer id = stringToID.get(string);
+		if (id == null) {
+			id = idToString.size();
+			stringToID.put(string, id);
+			idToString.add(string);
+		}
+		return id;
+	}
+
+	// returns -1 for strings which were never interned
+	public int lookup(String string) {
+		Integer id = stringToID.get(string);
+		return id == null ? -1 : id;
+	}
+
+	public String get(int id) {
+		return idToString.get(id);
+	}
+
+	public int size() {
+		return idToString.size();
+	}
+}
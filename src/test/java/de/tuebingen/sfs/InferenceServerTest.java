@@ -0,0 +1,120 @@
+package de.tuebingen.sfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
+import junit.framework.TestCase;
+
+public class InferenceServerTest extends TestCase {
+
+	private InferenceServer server;
+
+	protected void setUp() throws IOException {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(12, 3, new SplittableRandom(5));
+		IsolecticAreaIndex index = new IsolecticAreaIndex(generator.generate(100, new SplittableRandom(6)));
+		server = new InferenceServer(index, 0, 2, 4, 2);
+		server.start();
+	}
+
+	protected void tearDown() {
+		server.stop();
+	}
+
+	public void testInferenceRequests() throws IOException {
+		String answer = post("-e connectivity\nC00\nC01\nC02\nC03\n", 200);
+		assertTrue(answer.startsWith("{"));
+		assertTrue(answer.contains("RESULT:"));
+		assertTrue(answer.contains("\"map.dot\": "));
+		// only the selected concepts are variables
+		assertFalse(answer.contains("C04"));
+
+		answer = post("-e connectivity -b -n 5 -seed 1\n", 200);
+		assertTrue(answer.contains("\"consensus.dot\": "));
+
+		assertTrue(post("-e connectivity -vo /tmp/map\n", 400).contains("-vo"));
+		assertTrue(post("-e connectivity -slt 1:3:1\n", 400).contains("-slt"));
+		assertTrue(get("/status").contains("finished 2"));
+	}
+
+	public void testUnknownConceptsAreRejected() throws IOException {
+		String answer = post("-e connectivity\nC00\nNO SUCH CONCEPT\nC01\nOTHER\n", 400);
+		assertTrue(answer.contains("NO SUCH CONCEPT, OTHER"));
+	}
+
+	public void testOutputOfSampleRunsReachesRequest() throws IOException {
+		String answer = post("-e connectivity -m -n 4 -seed 1\n", 200);
+		assertTrue(answer.contains("Map size: "));
+		assertTrue(answer.contains("MINIMAL MAP"));
+		assertTrue(answer.contains("Will vary link processing order"));
+	}
+
+	public void testOversizedRequestIsRejected() throws IOException {
+		char[] concepts = new char[InferenceServer.MAX_REQUEST_BYTES];
+		Arrays.fill(concepts, 'C');
+		assertTrue(post("-e connectivity\n" + new String(concepts) + "\n", 413).contains("exceeds"));
+	}
+
+	public void testTwoServersInOneJvm() throws IOException {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(12, 3, new SplittableRandom(5));
+		InferenceServer second = new InferenceServer(
+				new IsolecticAreaIndex(generator.generate(100, new SplittableRandom(6))), 0, 1, 4, 1);
+		second.start();
+		try {
+			assertTrue(post(second, "-e connectivity\nC00\nC01\n", 200).contains("RESULT:"));
+			assertTrue(post("-e connectivity\nC00\nC01\n", 200).contains("RESULT:"));
+		} finally {
+			second.stop();
+		}
+		assertTrue(post("-e connectivity\nC02\nC03\n", 200).contains("RESULT:"));
+		try {
+			server.start();
+			fail("second start not detected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private String post(String body, int expectedCode) throws IOException {
+		return post(server, body, expectedCode);
+	}
+
+	private static String post(InferenceServer server, String body, int expectedCode) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				"http://127.0.0.1:" + server.getPort() + "/infer").openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(expectedCode, connection.getResponseCode());
+		return read(expectedCode == 200 ? connection.getInputStream() : connection.getErrorStream());
+	}
+
+	private String get(String path) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path)
+				.openConnection();
+		assertEquals(200, connection.getResponseCode());
+		return read(connection.getInputStream());
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8192];
+			int length;
+			while ((length = stream.read(chunk)) >= 0) {
+				buffer.write(chunk, 0, length);
+			}
+			return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package de.tuebingen.sfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tuebingen.sfs.inference.SamplingCheckpoint;
+import de.tuebingen.sfs.inference.SemanticMapLinks;
+import junit.framework.TestCase;
+
+public class MergeShardsTest extends TestCase {
+
+	private static final String[] VAR_NAMES = { "BREATHE", "BLOW", "SMELL" };
+
+	// shard shardIndex of numShards of totalSamples samples, of which only the first numRun are run
+	private static String writeShard(int shardIndex, int numShards, int totalSamples, int numRun, long seed)
+			throws IOException {
+		int firstSample = (shardIndex - 1) * totalSamples / numShards;
+		SamplingCheckpoint shard = new SamplingCheckpoint("bootstrap=true", seed, VAR_NAMES, firstSample);
+		shard.setPlan(shardIndex, numShards, shardIndex * totalSamples / numShards, totalSamples);
+		for (int k = 0; k < numRun; k++) {
+			SemanticMapLinks links = new SemanticMapLinks(1);
+			links.add(0, 1 + k % 2, SemanticMapLinks.UNDIRECTED);
+			shard.add(links);
+		}
+		File file = File.createTempFile("shard", ".bin");
+		file.deleteOnExit();
+		shard.writeToFile(file.getPath());
+		return file.getPath();
+	}
+
+	public void testShardsAreOrderedBySample() throws IOException {
+		String second = writeShard(2, 2, 7, 4, 7L);
+		String first = writeShard(1, 2, 7, 3, 7L);
+		List<SamplingCheckpoint> shards = MergeShards.readShards(Arrays.asList(second, first));
+		assertEquals(0, shards.get(0).getFirstSample());
+		assertEquals(7, shards.get(1).getEndSample());
+		assertEquals(2, shards.get(1).getSampleMap(4).getVar2(0));
+	}
+
+	public void testIncompleteShardsAreRejected() throws IOException {
+		String first = writeShard(1, 3, 9, 3, 7L);
+		try {
+			MergeShards.readShards(Arrays.asList(first, writeShard(2, 3, 9, 2, 7L)));
+			fail("shard which stopped early not detected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("stopped early"));
+		}
+		try {
+			MergeShards.readShards(Arrays.asList(first, writeShard(2, 3, 9, 3, 8L)));
+			fail("shard with different seed not detected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("different analysis"));
+		}
+		try {
+			MergeShards.readShards(Arrays.asList(first, writeShard(3, 3, 9, 3, 7L)));
+			fail("missing middle shard not detected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("from 3 on are missing"));
+		}
+	}
+
+	public void testMissingLastShardIsRejected() throws IOException {
+		String first = writeShard(1, 3, 9, 3, 7L);
+		String second = writeShard(2, 3, 9, 3, 7L);
+		try {
+			MergeShards.readShards(Arrays.asList(second, first));
+			fail("missing last shard not detected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("from 6 on are missing"));
+		}
+		assertEquals(3, MergeShards.readShards(Arrays.asList(second, first, writeShard(3, 3, 9, 3, 7L))).size());
+	}
+}
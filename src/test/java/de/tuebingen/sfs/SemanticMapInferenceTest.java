@@ -1,5 +1,21 @@
 package de.tuebingen.sfs;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+import de.tuebingen.sfs.inference.SampleExecutor;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaReader;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -35,4 +51,121 @@ public class SemanticMapInferenceTest
     {
         assertTrue( true );
     }
+
+    public void testPairCountFileIsOnlyReusedForTheSameInput() throws IOException, ParseException
+    {
+        File input = writeInput( 40 );
+        File pairCountFile = new File( input.getPath() + ".pcm" );
+        try
+        {
+            String args = "-i " + input.getPath() + " -pcf " + pairCountFile.getPath();
+            assertFalse( run( args ).contains( "Read pair counts" ) );
+            assertTrue( run( args ).contains( "Read pair counts" ) );
+
+            // swapping two lines in the middle keeps the length, the concepts and the
+            // languages (and here also the modification time)
+            long modified = input.lastModified();
+            List<String> lines = Files.readAllLines( input.toPath(), StandardCharsets.UTF_8 );
+            int i = lines.size() / 2;
+            lines.add( i + 1, lines.remove( i ) );
+            Files.write( input.toPath(), lines, StandardCharsets.UTF_8 );
+            assertTrue( input.setLastModified( modified ) );
+            assertTrue( run( args ).contains( "belongs to a different input" ) );
+            assertTrue( run( args ).contains( "Read pair counts" ) );
+        }
+        finally
+        {
+            input.delete();
+            pairCountFile.delete();
+        }
+    }
+
+    public void testSeededMinimizationIsReproducible() throws IOException, ParseException
+    {
+        File input = writeInput( 40 );
+        try
+        {
+            String args = "-i " + input.getPath() + " -m -n 20 -seed 7";
+            String minimalMap = minimalMapOutput( run( args ) );
+            assertTrue( minimalMap.contains( "MINIMAL MAP" ) );
+            assertEquals( minimalMap, minimalMapOutput( run( args ) ) );
+        }
+        finally
+        {
+            input.delete();
+        }
+    }
+
+    public void testParallelMinimizationMatchesSequential() throws IOException, ParseException
+    {
+        File input = writeInput( 40 );
+        try
+        {
+            String args = "-i " + input.getPath() + " -m -n 20 -seed 7";
+            assertEquals( minimalMapOutput( run( args + " -t 1" ) ), minimalMapOutput( run( args + " -t 4" ) ) );
+        }
+        finally
+        {
+            input.delete();
+        }
+    }
+
+    public void testIncrementalModeIsRejected() throws IOException
+    {
+        try
+        {
+            run( "-i areas.tsv -inc areas.skeleton" );
+            fail( "incremental mode was accepted" );
+        }
+        catch ( ParseException e )
+        {
+            assertTrue( e.getMessage().contains( "-inc" ) );
+        }
+    }
+
+    // the output of the minimal map (without the consensus, which only covers the runs
+    // that were not aborted)
+    static String minimalMapOutput( String output )
+    {
+        return output.substring( output.indexOf( "MINIMAL MAP" ), output.indexOf( "SEMANTIC MAP CONSENSUS" ) );
+    }
+
+    // an isolectic area file with the given number of synthetic languages
+    static File writeInput( int numLanguages ) throws IOException
+    {
+        IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap( 10, 3, new SplittableRandom( 5 ) );
+        List<IsolecticArea> areas = generator.generate( numLanguages, new SplittableRandom( 6 ) );
+        File input = File.createTempFile( "areas", ".tsv" );
+        try ( PrintStream out = new PrintStream( input, "UTF-8" ) )
+        {
+            for ( IsolecticArea area : areas )
+            {
+                out.println( area.getLang() + "\t" + area.getLemma() + "\t{" + String.join( ", ", area.getConcepts() )
+                        + "}" );
+            }
+        }
+        return input;
+    }
+
+    // the textual output of an analysis run on the input file named in the arguments
+    static String run( String args ) throws IOException, ParseException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream textOutput = new PrintStream( output, false, "UTF-8" );
+        InferenceSettings settings = InferenceSettings.fromCommandLine(
+                new DefaultParser().parse( SemanticMapInference.defineOptions(), args.split( " " ) ), textOutput );
+        SampleExecutor executor = new SampleExecutor( settings.numThreads );
+        try
+        {
+            SemanticMapInference.runInference( settings,
+                    IsolecticAreaReader.loadIndexFromFile( settings.inputFilePath, null, null ), executor, null,
+                    textOutput );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        textOutput.flush();
+        return output.toString( "UTF-8" );
+    }
 }
@@ -0,0 +1,77 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+import de.tuebingen.sfs.util.struct.Triple;
+import junit.framework.TestCase;
+
+public class AreaConnectivityCriterionTest extends TestCase {
+
+	static final String BREATHING_AREAS = "examples/data/breathing/francois2008-isolectic-areas.tsv";
+	static final String BREATHING_TRACE = "examples/results/breathing/francois2008-map-trace.txt";
+
+	// PC* runs on bootstrap samples in random orders infer the same maps with and
+	// without the cache, also if it has to evict tests
+	public void testCachedRunsMatchUncached() {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(20, 4, new SplittableRandom(5));
+		generator.setAreaSizes(3.0, 6);
+		List<IsolecticArea> areas = generator.generate(60, new SplittableRandom(6));
+		String[] varNames = generator.getConcepts();
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, varNames,
+				-1);
+		InitialGraphTemplate initialGraph = InitialGraphTemplate
+				.fromPairCounts(PairCountMatrix.fromLanguagePartitions(partitions));
+		double[][] thresholds = new double[varNames.length][varNames.length];
+		AreaConnectivityCriterion uncached = new AreaConnectivityCriterion(partitions, 0);
+		AreaConnectivityCriterion cached = new AreaConnectivityCriterion(partitions, 16);
+		AreaConnectivityCriterion small = new AreaConnectivityCriterion(partitions, 1);
+		PcStarSearch uncachedSearch = new PcStarSearch(varNames, initialGraph, thresholds, false, uncached);
+		PcStarSearch cachedSearch = new PcStarSearch(varNames, initialGraph, thresholds, false, cached);
+		PcStarSearch smallSearch = new PcStarSearch(varNames, initialGraph, thresholds, false, small);
+
+		for (int k = 0; k < 6; k++) {
+			SplittableRandom random = SampleRandom.forSample(11, k);
+			int[] languages = partitions.resample(random);
+			List<Set<Set<Triple<String, String, String>>>> sample = partitions.samplePartitions(languages);
+			int[] multiplicities = partitions.multiplicities(languages);
+			int[] order = SampleRandom.randomPermutation(varNames.length, random);
+			String map = links(uncachedSearch.inferInOrder(sample, multiplicities, order, null), varNames.length);
+			assertEquals(map, links(cachedSearch.inferInOrder(sample, multiplicities, order, null), varNames.length));
+			assertEquals(map, links(smallSearch.inferInOrder(sample, multiplicities, order, null), varNames.length));
+		}
+		assertEquals(0, uncached.getCacheHits());
+		assertEquals(0, uncached.getCacheSize());
+		assertTrue(cached.getCacheHits() > 0);
+		assertTrue(small.getCacheSize() < cached.getCacheSize());
+	}
+
+	private static String links(CausalGraph map, int n) {
+		StringBuilder links = new StringBuilder();
+		for (int x = 0; x < n; x++) {
+			for (int y = x + 1; y < n; y++) {
+				if (map.hasLink(x, y)) {
+					links.append(x).append('-').append(y).append(' ');
+				}
+			}
+		}
+		return links.toString();
+	}
+
+	static int[] splitPair(String pair, String separator, List<String> concepts) {
+		for (int pos = pair.indexOf(separator); pos >= 0; pos = pair.indexOf(separator, pos + 1)) {
+			int x = concepts.indexOf(pair.substring(0, pos));
+			int y = concepts.indexOf(pair.substring(pos + separator.length()));
+			if (x >= 0 && y >= 0)
+				return new int[] { x, y };
+		}
+		throw new IllegalArgumentException("Not a pair of concepts: " + pair);
+	}
+}
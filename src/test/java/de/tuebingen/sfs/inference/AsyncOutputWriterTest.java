@@ -0,0 +1,58 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class AsyncOutputWriterTest extends TestCase {
+
+	public void testTasksRunInOrder() throws IOException {
+		List<Integer> written = new ArrayList<Integer>();
+		// a small queue makes the producer wait for the writer
+		AsyncOutputWriter output = new AsyncOutputWriter(2);
+		for (int i = 0; i < 100; i++) {
+			final int value = i;
+			output.submit(() -> written.add(value));
+		}
+		output.close();
+		assertEquals(100, written.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, (int) written.get(i));
+		}
+	}
+
+	public void testJsonEdgeList() throws IOException {
+		String[] varNames = { "A", "B \"quoted\"", "C" };
+		SemanticMapLinks links = new SemanticMapLinks(2);
+		links.add(1, 0, SemanticMapLinks.UNDIRECTED);
+		links.add(2, 1, SemanticMapLinks.DIRECTED);
+		File file = File.createTempFile("map", ".json");
+		try {
+			try (AsyncOutputWriter output = new AsyncOutputWriter()) {
+				output.writeFile(file.getPath(), out -> JsonOutput.writeMap(links, varNames, out));
+			}
+			String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			assertTrue(json.contains("\"concepts\": [\"A\", \"B \\\"quoted\\\"\", \"C\"]"));
+			assertTrue(json.contains("{\"concept1\": \"A\", \"type\": \"---\", \"concept2\": \"B \\\"quoted\\\"\"}"));
+			assertTrue(json.contains("{\"concept1\": \"C\", \"type\": \"-->\", \"concept2\": \"B \\\"quoted\\\"\"}"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testFailureIsReported() {
+		AsyncOutputWriter output = new AsyncOutputWriter();
+		output.writeFile(new File("no-such-directory", "map.dot").getPath(), out -> out.println("digraph {}"));
+		try {
+			output.close();
+			fail("missing directory not reported");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
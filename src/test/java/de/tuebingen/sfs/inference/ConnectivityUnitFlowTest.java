@@ -0,0 +1,190 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.causal.heuristics.separation.PartialCorrelationDiscreteUnitFlow;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaReader;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+import junit.framework.TestCase;
+
+public class ConnectivityUnitFlowTest extends TestCase {
+
+	private static final String SIZE_PREFIX = "Proceeding to separating set size ";
+	private static final String ATTEMPT_PREFIX = "  Attempting to separate pair ";
+	private static final String STRENGTH_PREFIX = "      Reduced link strength: ";
+	private static final String SUCCESS_PREFIX = "    successful independence test, link (";
+
+	// replays the PC* trace of the reference map: the unconditional link strengths
+	// agree, and every separation found by the unit flow is also found by the
+	// connectivity criterion on the links left at that point
+	public void testAgreesWithPcStarOnBreathingData() throws IOException {
+		Set<IsolecticArea> areas = IsolecticAreaReader.loadFromFile(AreaConnectivityCriterionTest.BREATHING_AREAS);
+		Set<String> conceptSet = new TreeSet<String>();
+		for (IsolecticArea area : areas) {
+			conceptSet.addAll(area.getConcepts());
+		}
+		String[] varNames = conceptSet.toArray(new String[conceptSet.size()]);
+		List<String> concepts = Arrays.asList(varNames);
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, varNames,
+				-1);
+		AreaConnectivityCriterion criterion = new AreaConnectivityCriterion(partitions);
+		int[] allLanguages = new int[partitions.getNumLanguages()];
+		Arrays.fill(allLanguages, 1);
+		double[][] thresholds = new double[varNames.length][varNames.length];
+		boolean[][] links = initialLinks(partitions);
+
+		int setSize = -1;
+		int[] pair = null;
+		int[] removed = null;
+		int numUnconditional = 0;
+		int numSeparations = 0;
+		for (String line : Files.readAllLines(Paths.get(AreaConnectivityCriterionTest.BREATHING_TRACE),
+				StandardCharsets.UTF_8)) {
+			if (line.startsWith(SIZE_PREFIX) || line.startsWith(ATTEMPT_PREFIX)) {
+				// a link is removed once all separating sets of the pair have been listed
+				if (removed != null) {
+					links[removed[0]][removed[1]] = false;
+					links[removed[1]][removed[0]] = false;
+					removed = null;
+				}
+			}
+			if (line.startsWith(SIZE_PREFIX)) {
+				setSize = Integer.parseInt(line.substring(SIZE_PREFIX.length(), line.indexOf(',')));
+			} else if (line.startsWith(ATTEMPT_PREFIX)) {
+				pair = AreaConnectivityCriterionTest.splitPair(line.substring(ATTEMPT_PREFIX.length(),
+						line.indexOf(" using ")), "-", concepts);
+			} else if (setSize == 0 && line.startsWith(STRENGTH_PREFIX)) {
+				ConnectivityUnitFlow flow = new ConnectivityUnitFlow(partitions.getPartitions(), toGraph(varNames, links),
+						varNames, thresholds, criterion, allLanguages, null);
+				// the flow of an area which only contains x and y is the link itself
+				assertEquals(Double.parseDouble(line.substring(STRENGTH_PREFIX.length())) == 0.0,
+						flow.independenceTest(pair[0], pair[1], new TreeSet<Integer>()));
+				numUnconditional++;
+			} else if (line.startsWith(SUCCESS_PREFIX)) {
+				removed = AreaConnectivityCriterionTest.splitPair(
+						line.substring(SUCCESS_PREFIX.length(), line.indexOf(") can be")), ",", concepts);
+				String setList = line.substring(line.indexOf('[') + 1, line.lastIndexOf(']'));
+				Set<Integer> z = new TreeSet<Integer>();
+				for (String concept : setList.isEmpty() ? new String[0] : setList.split(",")) {
+					z.add(concepts.indexOf(concept.trim()));
+				}
+				assertEquals(setSize, z.size());
+				ConnectivityUnitFlow flow = new ConnectivityUnitFlow(partitions.getPartitions(), toGraph(varNames, links),
+						varNames, thresholds, criterion, allLanguages, null);
+				assertTrue(line, flow.independenceTest(removed[0], removed[1], z));
+				numSeparations++;
+			}
+		}
+		assertEquals(335, numUnconditional);
+		assertTrue(numSeparations > 1000);
+	}
+
+	// small cases in which the whole flow of each area either passes through the
+	// separating set or not at all, so that both criteria must agree
+	public void testAgreesWithUnitFlowOnSmallAreas() {
+		String[] varNames = { "BLOW", "BREATHE", "LIFE", "SMELL", "SOUL" };
+		List<IsolecticArea> areas = new ArrayList<IsolecticArea>();
+		// BREATHE - BLOW only colexified together with LIFE, BLOW - SMELL on their own
+		areas.add(area("L1", "BLOW", "BREATHE", "LIFE"));
+		areas.add(area("L2", "BLOW", "SMELL"));
+		areas.add(area("L3", "BREATHE", "LIFE", "SOUL"));
+		areas.add(area("L4", "BLOW", "BREATHE", "LIFE", "SMELL"));
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, varNames,
+				-1);
+		AreaConnectivityCriterion criterion = new AreaConnectivityCriterion(partitions);
+		int[] allLanguages = new int[partitions.getNumLanguages()];
+		Arrays.fill(allLanguages, 1);
+		double[][] thresholds = new double[varNames.length][varNames.length];
+
+		// BLOW - LIFE - BREATHE, LIFE - SOUL, BREATHE - SOUL, BLOW - SMELL, BLOW - BREATHE
+		boolean[][] links = new boolean[varNames.length][varNames.length];
+		int[][] linkList = { { 0, 2 }, { 1, 2 }, { 2, 4 }, { 1, 4 }, { 0, 3 }, { 0, 1 } };
+		for (int[] link : linkList) {
+			links[link[0]][link[1]] = true;
+			links[link[1]][link[0]] = true;
+		}
+		CausalGraph graph = toGraph(varNames, links);
+		ConnectivityUnitFlow connectivity = new ConnectivityUnitFlow(partitions.getPartitions(), graph, varNames,
+				thresholds, criterion, allLanguages, null);
+		PartialCorrelationDiscreteUnitFlow unitFlow = new PartialCorrelationDiscreteUnitFlow(
+				partitions.getPartitions(), graph, varNames, thresholds, false);
+
+		int[][] tests = {
+				// never colexified, or only with the link itself
+				{ 3, 4 }, { 0, 3 }, { 0, 3, 2 },
+				// BLOW - BREATHE through LIFE in all areas, but not without it
+				{ 0, 1 }, { 0, 1, 2 }, { 1, 0, 2 }, { 0, 1, 4 },
+				// BREATHE - SOUL only through LIFE in L3
+				{ 1, 4 }, { 1, 4, 2 }, { 1, 4, 0 } };
+		boolean[] separated = { true, false, false, false, true, true, false, false, true, false };
+		for (int i = 0; i < tests.length; i++) {
+			Set<Integer> z = new TreeSet<Integer>();
+			for (int j = 2; j < tests[i].length; j++) {
+				z.add(tests[i][j]);
+			}
+			String test = Arrays.toString(tests[i]);
+			assertEquals(test, separated[i], connectivity.independenceTest(tests[i][0], tests[i][1], z));
+			assertEquals(test, separated[i], unitFlow.independenceTest(tests[i][0], tests[i][1], z));
+		}
+	}
+
+	// the variables of the graph may come in another order than the concepts
+	public void testPermutedVariables() {
+		String[] concepts = { "BLOW", "BREATHE", "LIFE" };
+		String[] varNames = { "LIFE", "BLOW", "BREATHE" };
+		List<IsolecticArea> areas = new ArrayList<IsolecticArea>();
+		areas.add(area("L1", "BLOW", "BREATHE", "LIFE"));
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, concepts,
+				-1);
+		AreaConnectivityCriterion criterion = new AreaConnectivityCriterion(partitions);
+		boolean[][] links = { { false, true, true }, { true, false, true }, { true, true, false } };
+		ConnectivityUnitFlow flow = new ConnectivityUnitFlow(partitions.getPartitions(), toGraph(varNames, links),
+				varNames, new double[3][3], criterion, new int[] { 1 }, null);
+		assertTrue(flow.independenceTest(1, 2, new TreeSet<Integer>(Arrays.asList(0))));
+		assertTrue(flow.independenceTest(2, 1, new TreeSet<Integer>(Arrays.asList(0))));
+		assertFalse(flow.independenceTest(0, 1, new TreeSet<Integer>()));
+		assertTrue(flow.independenceTest(0, 1, new TreeSet<Integer>(Arrays.asList(2))));
+	}
+
+	// all colexified pairs
+	private static boolean[][] initialLinks(LanguagePartitions partitions) {
+		InitialGraphTemplate initialGraph = InitialGraphTemplate
+				.fromPairCounts(PairCountMatrix.fromLanguagePartitions(partitions));
+		int n = partitions.getConcepts().length;
+		boolean[][] links = new boolean[n][n];
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				links[x][y] = x != y && initialGraph.hasLink(x, y);
+			}
+		}
+		return links;
+	}
+
+	private static CausalGraph toGraph(String[] varNames, boolean[][] links) {
+		CausalGraph graph = new CausalGraph(varNames, false);
+		for (int x = 0; x < varNames.length; x++) {
+			for (int y = x + 1; y < varNames.length; y++) {
+				if (links[x][y]) {
+					graph.addLink(x, y);
+				}
+			}
+		}
+		return graph;
+	}
+
+	private static IsolecticArea area(String lang, String... concepts) {
+		return new IsolecticArea(lang, concepts[0], new TreeSet<String>(Arrays.asList(concepts)));
+	}
+}
@@ -0,0 +1,51 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.util.struct.Triple;
+import junit.framework.TestCase;
+
+public class InferenceMetricsTest extends TestCase {
+
+	public void testCountsTestsOfCriterion() {
+		String[] varNames = { "BLOW", "BREATHE", "SOUL" };
+		Set<IsolecticArea> areas = new HashSet<IsolecticArea>();
+		areas.add(new IsolecticArea("L1", "a", new TreeSet<String>(Arrays.asList("BLOW", "BREATHE"))));
+		areas.add(new IsolecticArea("L2", "b", new TreeSet<String>(Arrays.asList("BREATHE", "SOUL"))));
+		List<Set<Set<Triple<String, String, String>>>> sample = IsolecticAreaProcessing
+				.isolecticAreasToLanguagePartitions(areas, varNames, -1).getPartitions();
+		double[][] thresholds = new double[varNames.length][varNames.length];
+		CausalGraph graph = new CausalGraph(varNames, false);
+
+		InferenceMetrics metrics = new InferenceMetrics();
+		CountingUnitFlow criterion = new CountingUnitFlow(sample, graph, varNames, thresholds, metrics);
+		int numSeparated = 0;
+		// two pairs at size 0, then two candidates for one pair and one for another at size 1
+		numSeparated += separated(criterion.independenceTest(0, 1, Collections.<Integer>emptySet()));
+		numSeparated += separated(criterion.independenceTest(0, 2, Collections.<Integer>emptySet()));
+		assertEquals(2, metrics.getNumPairsAttempted(0));
+		assertEquals(2, metrics.getNumCandidatesFormed(0));
+		assertEquals(numSeparated, metrics.getNumSuccessfulTests(0));
+
+		numSeparated = 0;
+		numSeparated += separated(criterion.independenceTest(0, 1, Collections.singleton(2)));
+		numSeparated += separated(criterion.independenceTest(1, 0, Collections.singleton(2)));
+		numSeparated += separated(criterion.independenceTest(1, 2, Collections.singleton(0)));
+		assertEquals(2, metrics.getNumPairsAttempted(1));
+		assertEquals(3, metrics.getNumCandidatesFormed(1));
+		assertEquals(numSeparated, metrics.getNumSuccessfulTests(1));
+		assertEquals(0, metrics.getNumPairsAttempted(2));
+	}
+
+	private static int separated(boolean independent) {
+		return independent ? 1 : 0;
+	}
+}
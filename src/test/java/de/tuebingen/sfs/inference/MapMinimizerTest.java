@@ -0,0 +1,114 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+import de.tuebingen.sfs.util.struct.Triple;
+import junit.framework.TestCase;
+
+public class MapMinimizerTest extends TestCase {
+
+	private PcStarSearch search;
+	private List<Set<Set<Triple<String, String, String>>>> sample;
+	private int[] multiplicities;
+	private PairCountMatrix pairCounts;
+
+	protected void setUp() {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(25, 6, new SplittableRandom(5));
+		generator.setAreaSizes(3.0, 6);
+		List<IsolecticArea> areas = generator.generate(40, new SplittableRandom(6));
+		String[] varNames = generator.getConcepts();
+
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, varNames,
+				-1);
+		pairCounts = PairCountMatrix.fromLanguagePartitions(partitions);
+		double[][] thresholds = new double[varNames.length][varNames.length];
+		search = new PcStarSearch(varNames, InitialGraphTemplate.fromPairCounts(pairCounts), thresholds, false, null);
+		sample = partitions.getPartitions();
+		multiplicities = new int[partitions.getNumLanguages()];
+		Arrays.fill(multiplicities, 1);
+	}
+
+	public void testPruningKeepsMinimalMap() {
+		int n = search.varNames.length;
+		int minMapSize = Integer.MAX_VALUE;
+		String minMap = null;
+		for (int k = 0; k < 30; k++) {
+			CausalGraph map = search.inferInOrder(sample, multiplicities,
+					SampleRandom.randomPermutation(n, SampleRandom.forSample(7, k)), null);
+			int mapSize = map.listAllLinks().size();
+			if (mapSize < minMapSize) {
+				minMapSize = mapSize;
+				minMap = links(map);
+			}
+		}
+
+		MapMinimizer minimizer = new MapMinimizer(search, sample, multiplicities, pairCounts, MapMinimizer.RANDOM);
+		String prunedMinMap = null;
+		for (int k = 0; k < 30; k++) {
+			CausalGraph map = minimizer.run(k, SampleRandom.forSample(7, k), null);
+			if (map != null && prunedMinMap == null && map.listAllLinks().size() == minMapSize) {
+				prunedMinMap = links(map);
+			}
+		}
+		assertEquals(minMapSize, minimizer.getMinMapSize());
+		assertEquals(minMap, prunedMinMap);
+	}
+
+	public void testAbortsHopelessSearch() {
+		int[] order = SampleRandom.randomPermutation(search.varNames.length, new SplittableRandom(3));
+		int mapSize = search.inferInOrder(sample, multiplicities, order, null).listAllLinks().size();
+		// a map of the same size is still completed, while a negative bound is exceeded
+		// as soon as the separating sets grow
+		assertNotNull(search.inferInOrder(sample, multiplicities, order, () -> mapSize, null));
+		assertNull(search.inferInOrder(sample, multiplicities, order, () -> -1, null));
+	}
+
+	public void testFinalLinks() {
+		String[] varNames = { "A", "B", "C", "D" };
+		CausalGraph graph = new CausalGraph(varNames, false);
+		// a triangle A - B - C with a pendant D at C
+		graph.addLink(0, 1);
+		graph.addLink(1, 2);
+		graph.addLink(0, 2);
+		graph.addLink(2, 3);
+		CountingUnitFlow flow = new CountingUnitFlow(sample, graph, varNames, new double[4][4], null);
+		assertEquals(0, flow.countFinalLinks(1));
+		// A - B only has C as another neighbour, the other links have two
+		assertEquals(1, flow.countFinalLinks(2));
+		assertEquals(4, flow.countFinalLinks(3));
+	}
+
+	public void testStrategies() {
+		for (String strategy : new String[] { MapMinimizer.GREEDY, MapMinimizer.LOCAL }) {
+			MapMinimizer minimizer = new MapMinimizer(search, sample, multiplicities, pairCounts, strategy);
+			// the first run is never aborted
+			assertNotNull(minimizer.run(0, SampleRandom.forSample(7, 0), null));
+			int mapSize = minimizer.getMinMapSize();
+			for (int k = 1; k < 20; k++) {
+				minimizer.run(k, SampleRandom.forSample(7, k), null);
+			}
+			assertTrue(minimizer.getMinMapSize() <= mapSize);
+			assertTrue(minimizer.getMinMapSize() >= 0);
+		}
+	}
+
+	private String links(CausalGraph map) {
+		int n = search.varNames.length;
+		boolean[][] links = new boolean[n][n];
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				links[x][y] = x != y && map.hasLink(x, y);
+			}
+		}
+		return Arrays.deepToString(links);
+	}
+}
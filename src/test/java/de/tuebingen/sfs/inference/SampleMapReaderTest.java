@@ -0,0 +1,39 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class SampleMapReaderTest extends TestCase {
+
+	public void testWriteAndRead() throws IOException {
+		String[] varNames = { "BREATHE", "BLOW", "SMELL" };
+		SemanticMapLinks first = new SemanticMapLinks(2);
+		first.add(0, 1, SemanticMapLinks.CIRCLE);
+		first.add(2, 1, SemanticMapLinks.DIRECTED);
+
+		File file = File.createTempFile("samples", ".tsv.gz");
+		try {
+			try (SampleMapWriter writer = new SampleMapWriter(file.getPath(), varNames)) {
+				writer.write(3, first);
+				writer.write(4, new SemanticMapLinks(0));
+			}
+			try (SampleMapReader reader = new SampleMapReader(file.getPath())) {
+				assertEquals("SMELL", reader.getVarNames()[2]);
+				SemanticMapLinks links = reader.next();
+				assertEquals(3, reader.getSampleIndex());
+				assertEquals(2, links.size());
+				assertEquals(SemanticMapLinks.CIRCLE, links.getType(0));
+				assertEquals(2, links.getVar1(1));
+				assertEquals(1, links.getVar2(1));
+				assertEquals(SemanticMapLinks.DIRECTED, links.getType(1));
+				assertEquals(0, reader.next().size());
+				assertEquals(4, reader.getSampleIndex());
+				assertNull(reader.next());
+			}
+		} finally {
+			file.delete();
+		}
+	}
+}
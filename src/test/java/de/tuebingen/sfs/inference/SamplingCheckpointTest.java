@@ -0,0 +1,79 @@
+package de.tuebingen.sfs.inference;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+public class SamplingCheckpointTest extends TestCase {
+
+	public void testWriteAndRead() throws IOException {
+		String[] varNames = { "BREATHE", "BLOW", "SMELL" };
+		SamplingCheckpoint checkpoint = new SamplingCheckpoint("bootstrap=true", 42L, varNames);
+		SemanticMapLinks first = new SemanticMapLinks(2);
+		first.add(0, 1, SemanticMapLinks.UNDIRECTED);
+		first.add(2, 1, SemanticMapLinks.DIRECTED);
+		checkpoint.add(first);
+		checkpoint.add(new SemanticMapLinks(0));
+
+		File file = File.createTempFile("checkpoint", ".bin");
+		try {
+			checkpoint.writeToFile(file.getPath());
+			checkpoint = SamplingCheckpoint.readFromFile(file.getPath());
+		} finally {
+			file.delete();
+		}
+		assertEquals("bootstrap=true", checkpoint.getRunDescription());
+		assertEquals(42L, checkpoint.getBaseSeed());
+		assertEquals("SMELL", checkpoint.getVarNames()[2]);
+		assertEquals(2, checkpoint.getNumSamples());
+		SemanticMapLinks links = checkpoint.getSampleMap(0);
+		assertEquals(2, links.size());
+		assertEquals(2, links.getVar1(1));
+		assertEquals(1, links.getVar2(1));
+		assertEquals(SemanticMapLinks.DIRECTED, links.getType(1));
+		assertEquals(0, checkpoint.getSampleMap(1).size());
+	}
+
+	public void testAppendAndResumeAfterCutOffBlock() throws IOException {
+		String[] varNames = { "BREATHE", "BLOW", "SMELL" };
+		SamplingCheckpoint checkpoint = new SamplingCheckpoint("bootstrap=true", 42L, varNames, 10);
+		File file = File.createTempFile("checkpoint", ".bin");
+		try {
+			checkpoint.add(map(1));
+			checkpoint.add(map(2));
+			checkpoint.writeToFile(file.getPath());
+			long firstBlockEnd = file.length();
+			checkpoint.add(map(1));
+			checkpoint.writeToFile(file.getPath());
+			assertEquals(13, checkpoint.getEndSample());
+
+			// a run killed while appending the second block
+			try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+				out.setLength(file.length() - 3);
+			}
+			checkpoint = SamplingCheckpoint.readFromFile(file.getPath());
+			assertEquals(10, checkpoint.getFirstSample());
+			assertEquals(12, checkpoint.getEndSample());
+			assertEquals(2, checkpoint.getSampleMap(11).getVar2(0));
+
+			checkpoint.add(map(2));
+			checkpoint.add(map(1));
+			checkpoint.writeToFile(file.getPath());
+			assertTrue(file.length() > firstBlockEnd);
+			checkpoint = SamplingCheckpoint.readFromFile(file.getPath());
+		} finally {
+			file.delete();
+		}
+		assertEquals(4, checkpoint.getNumSamples());
+		assertEquals(2, checkpoint.getSampleMap(12).getVar2(0));
+		assertEquals(1, checkpoint.getSampleMap(13).getVar2(0));
+	}
+
+	private static SemanticMapLinks map(int var2) {
+		SemanticMapLinks links = new SemanticMapLinks(1);
+		links.add(0, var2, SemanticMapLinks.UNDIRECTED);
+		return links;
+	}
+}
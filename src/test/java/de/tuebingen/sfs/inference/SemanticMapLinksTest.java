@@ -0,0 +1,82 @@
+package de.tuebingen.sfs.inference;
+
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import junit.framework.TestCase;
+
+public class SemanticMapLinksTest extends TestCase {
+
+	private static final String[] VAR_NAMES = { "BREATHE", "BLOW", "SMELL", "SNIFF", "SOUL" };
+
+	public void testOrientedGraphRoundTrip() {
+		// SMELL --> BLOW, SNIFF <-> SMELL, BREATHE o-o BLOW, SOUL --> BREATHE
+		CausalGraph graph = new CausalGraph(VAR_NAMES, false);
+		addLink(graph, 2, 1, true, false);
+		addLink(graph, 3, 2, true, true);
+		addLink(graph, 0, 1, false, false);
+		addLink(graph, 4, 0, true, false);
+
+		SemanticMapLinks links = SemanticMapLinks.fromGraph(graph, VAR_NAMES, true);
+		assertEquals(4, links.size());
+		assertLink(links, 0, 1, SemanticMapLinks.CIRCLE);
+		assertLink(links, 2, 1, SemanticMapLinks.DIRECTED);
+		assertLink(links, 2, 3, SemanticMapLinks.BIDIRECTED);
+		assertLink(links, 4, 0, SemanticMapLinks.DIRECTED);
+		assertSameLinks(links, SemanticMapLinks.fromGraph(links.toGraph(VAR_NAMES), VAR_NAMES, true));
+	}
+
+	public void testUndirectedGraphRoundTrip() {
+		CausalGraph graph = new CausalGraph(VAR_NAMES, false);
+		addLink(graph, 0, 1, false, false);
+		addLink(graph, 3, 1, false, false);
+		addLink(graph, 2, 4, true, false);
+		graph.convertCirclesToLines();
+
+		SemanticMapLinks links = SemanticMapLinks.fromGraph(graph, VAR_NAMES, false);
+		assertEquals(3, links.size());
+		assertLink(links, 0, 1, SemanticMapLinks.UNDIRECTED);
+		assertLink(links, 1, 3, SemanticMapLinks.UNDIRECTED);
+		assertLink(links, 2, 4, SemanticMapLinks.DIRECTED);
+		assertSameLinks(links, SemanticMapLinks.fromGraph(links.toGraph(VAR_NAMES), VAR_NAMES, false));
+	}
+
+	public void testPermutedGraph() {
+		// the graph lists the variables in the order SOUL, SMELL, BREATHE, SNIFF, BLOW
+		int[] graphVars = { 2, 4, 1, 3, 0 };
+		String[] graphVarNames = new String[VAR_NAMES.length];
+		for (int x = 0; x < VAR_NAMES.length; x++) {
+			graphVarNames[graphVars[x]] = VAR_NAMES[x];
+		}
+		CausalGraph graph = new CausalGraph(graphVarNames, false);
+		// SMELL --> BLOW, SOUL --> BREATHE
+		addLink(graph, 1, 4, true, false);
+		addLink(graph, 0, 2, true, false);
+
+		SemanticMapLinks links = SemanticMapLinks.fromGraph(graph, graphVars, true);
+		assertEquals(2, links.size());
+		assertLink(links, 2, 1, SemanticMapLinks.DIRECTED);
+		assertLink(links, 4, 0, SemanticMapLinks.DIRECTED);
+	}
+
+	private static void addLink(CausalGraph graph, int from, int to, boolean headAtTo, boolean headAtFrom) {
+		graph.addLink(from, to);
+		graph.putArrow(from, to, headAtTo);
+		graph.putArrow(to, from, headAtFrom);
+	}
+
+	private static void assertLink(SemanticMapLinks links, int var1, int var2, byte type) {
+		for (int i = 0; i < links.size(); i++) {
+			if (links.getVar1(i) == var1 && links.getVar2(i) == var2) {
+				assertEquals(type, links.getType(i));
+				return;
+			}
+		}
+		fail("missing link " + VAR_NAMES[var1] + " " + SemanticMapLinks.typeSymbol(type) + " " + VAR_NAMES[var2]);
+	}
+
+	private static void assertSameLinks(SemanticMapLinks expected, SemanticMapLinks actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertLink(actual, expected.getVar1(i), expected.getVar2(i), expected.getType(i));
+		}
+	}
+}
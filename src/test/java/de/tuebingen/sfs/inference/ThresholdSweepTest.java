@@ -0,0 +1,88 @@
+package de.tuebingen.sfs.inference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.SemanticMapInference;
+import de.tuebingen.sfs.causal.data.CausalGraph;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.lextyp.struct.PairCountMatrix;
+import junit.framework.TestCase;
+
+public class ThresholdSweepTest extends TestCase {
+
+	public void testSettingsMatchSeparateRuns() {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(20, 5, new SplittableRandom(5));
+		generator.setAreaSizes(2.0, 4);
+		generator.setGapRate(0.1);
+		generator.setNoiseRate(0.02);
+		List<IsolecticArea> areas = generator.generate(200, new SplittableRandom(6));
+		String[] varNames = generator.getConcepts();
+		LanguagePartitions allPartitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, varNames,
+				-1);
+		InitialGraphTemplate initialGraph = InitialGraphTemplate
+				.fromPairCounts(PairCountMatrix.fromLanguagePartitions(allPartitions));
+
+		ThresholdSweep sweep = new ThresholdSweep(allPartitions, initialGraph, null);
+		ThresholdSweep connectivitySweep = new ThresholdSweep(allPartitions, initialGraph,
+				new AreaConnectivityCriterion(allPartitions));
+		SampleExecutor executor = new SampleExecutor(1);
+		for (int gapThreshold : new int[] { -1, 2 }) {
+			LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas,
+					varNames, gapThreshold);
+			int[] multiplicities = new int[partitions.getNumLanguages()];
+			Arrays.fill(multiplicities, 1);
+			for (double linkThreshold : new double[] { 0.0, 3.0 }) {
+				double[][] thresholds = new double[varNames.length][varNames.length];
+				for (double[] thresholdRow : thresholds) {
+					Arrays.fill(thresholdRow, linkThreshold);
+				}
+				CausalGraph map = SemanticMapInference.inferSemanticMap(partitions.getPartitions(), varNames,
+						initialGraph, thresholds, false, false);
+				assertSameMap(map, sweep.run(linkThreshold, gapThreshold, 1, 0L, executor, null), partitions);
+
+				CausalGraph connectivityMap = new PcStarSearch(varNames, initialGraph, thresholds, false,
+						new AreaConnectivityCriterion(partitions)).infer(partitions.getPartitions(), multiplicities,
+								null, null);
+				assertSameMap(connectivityMap, connectivitySweep.run(linkThreshold, gapThreshold, 1, 0L, executor, null),
+						partitions);
+			}
+		}
+	}
+
+	public void testBootstrapIsReproducible() {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(15, 4, new SplittableRandom(7));
+		List<IsolecticArea> areas = generator.generate(60, new SplittableRandom(8));
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas,
+				generator.getConcepts(), -1);
+		ThresholdSweep sweep = new ThresholdSweep(partitions, null);
+		ThresholdSweep.Result sequential = sweep.run(1.0, -1, 20, 3L, new SampleExecutor(1), null);
+		SampleExecutor executor = new SampleExecutor(4);
+		try {
+			ThresholdSweep.Result parallel = sweep.run(1.0, -1, 20, 3L, executor, null);
+			assertEquals(20, parallel.getNumSamples());
+			assertEquals(sequential.getMeanMapSize(), parallel.getMeanMapSize());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void assertSameMap(CausalGraph expected, ThresholdSweep.Result result,
+			LanguagePartitions partitions) {
+		String[] varNames = partitions.getConcepts();
+		assertEquals(1, result.getNumSamples());
+		assertEquals(partitions.getNumLanguages(), result.getNumLanguages());
+		int numLinks = 0;
+		for (int x = 0; x < varNames.length; x++) {
+			for (int y = x + 1; y < varNames.length; y++) {
+				assertEquals(expected.hasLink(x, y) ? 1.0 : 0.0, result.getLinkFrequency(x, y));
+				numLinks += expected.hasLink(x, y) ? 1 : 0;
+			}
+		}
+		assertEquals((double) numLinks, result.getMeanMapSize());
+	}
+}
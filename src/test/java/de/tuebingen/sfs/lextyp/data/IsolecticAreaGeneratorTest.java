@@ -0,0 +1,80 @@
+package de.tuebingen.sfs.lextyp.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaReader;
+import de.tuebingen.sfs.lextyp.io.IsolecticAreaWriter;
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import junit.framework.TestCase;
+
+public class IsolecticAreaGeneratorTest extends TestCase {
+
+	public void testAreasAreConnectedInGroundTruthMap() {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(30, 5, new SplittableRandom(1));
+		assertEquals(29 + 5, generator.getNumLinks());
+		generator.setAreaSizes(3.0, 6);
+		List<IsolecticArea> areas = generator.generate(20, new SplittableRandom(2));
+
+		Map<String, Integer> conceptIDs = new HashMap<String, Integer>();
+		for (int i = 0; i < generator.getConcepts().length; i++) {
+			conceptIDs.put(generator.getConcepts()[i], i);
+		}
+		Map<String, Set<String>> coveredPerLang = new HashMap<String, Set<String>>();
+		for (IsolecticArea area : areas) {
+			assertTrue(area.getConcepts().size() <= 6);
+			coveredPerLang.computeIfAbsent(area.getLang(), lang -> new HashSet<String>()).addAll(area.getConcepts());
+
+			// without noise, every area is a connected subgraph of the map
+			int[] vars = area.getConcepts().stream().mapToInt(conceptIDs::get).toArray();
+			Set<Integer> reached = new HashSet<Integer>();
+			Deque<Integer> agenda = new ArrayDeque<Integer>();
+			agenda.add(vars[0]);
+			while (!agenda.isEmpty()) {
+				int var = agenda.poll();
+				if (!reached.add(var))
+					continue;
+				for (int other : vars) {
+					if (generator.hasLink(var, other)) {
+						agenda.add(other);
+					}
+				}
+			}
+			assertEquals(vars.length, reached.size());
+		}
+		// without gaps, every language covers all concepts
+		assertEquals(20, coveredPerLang.size());
+		for (Set<String> covered : coveredPerLang.values()) {
+			assertEquals(30, covered.size());
+		}
+	}
+
+	public void testGapsAndReproducibility() throws IOException {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(40, 10, new SplittableRandom(3));
+		generator.setGapRate(0.5);
+		generator.setNoiseRate(0.2);
+		List<IsolecticArea> areas = generator.generate(10, new SplittableRandom(4));
+		assertEquals(areas, generator.generate(10, new SplittableRandom(4)));
+
+		Set<String> covered = new HashSet<String>();
+		for (IsolecticArea area : areas) {
+			if (area.getLang().equals("L0")) {
+				covered.addAll(area.getConcepts());
+			}
+		}
+		assertTrue(covered.size() < 40);
+
+		File file = File.createTempFile("synthetic-isolectic-areas", ".tsv");
+		file.deleteOnExit();
+		IsolecticAreaWriter.writeToFile(areas, file.getPath());
+		assertEquals(new HashSet<IsolecticArea>(areas), IsolecticAreaReader.loadFromFile(file.getPath()));
+	}
+}
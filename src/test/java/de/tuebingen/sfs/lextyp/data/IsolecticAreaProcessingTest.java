@@ -0,0 +1,151 @@
+package de.tuebingen.sfs.lextyp.data;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import de.tuebingen.sfs.lextyp.struct.LanguageCoverage;
+import de.tuebingen.sfs.lextyp.struct.LanguagePartitions;
+import de.tuebingen.sfs.util.struct.Triple;
+import junit.framework.TestCase;
+
+public class IsolecticAreaProcessingTest extends TestCase {
+
+	static IsolecticArea area(String lang, String lemma, String... concepts) {
+		return new IsolecticArea(lang, lemma, new TreeSet<String>(Arrays.asList(concepts)));
+	}
+
+	static Set<IsolecticArea> exampleAreas() {
+		Set<IsolecticArea> areas = new HashSet<IsolecticArea>();
+		areas.add(area("L1", "a", "BREATHE", "BLOW"));
+		areas.add(area("L1", "b", "SOUL", "LIFE", "OTHER"));
+		areas.add(area("L2", "c", "BREATHE", "SOUL"));
+		areas.add(area("L2", "d", "OTHER"));
+		areas.add(area("L3", "e", "BLOW"));
+		return areas;
+	}
+
+	static final String[] CONCEPTS = { "BLOW", "BREATHE", "LIFE", "SOUL" };
+
+	public void testLanguagePartitionsWithoutGapFilter() {
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(exampleAreas(),
+				CONCEPTS, -1);
+		assertEquals(3, partitions.getNumLanguages());
+		assertEquals("L1", partitions.getLanguage(0));
+		assertEquals(2, partitions.getPartition(0).size());
+
+		// concept ids are sorted, areas without selected concepts are left out
+		int[][] areasL1 = partitions.getAreas(0);
+		assertEquals(2, areasL1.length);
+		Set<String> encoded = new HashSet<String>();
+		for (int[] area : areasL1) {
+			encoded.add(Arrays.toString(area));
+		}
+		assertTrue(encoded.contains("[0, 1]"));
+		assertTrue(encoded.contains("[2, 3]"));
+		assertEquals(1, partitions.getAreas(1).length);
+		assertEquals(2, partitions.getPartition(1).size());
+	}
+
+	public void testGapFilterMatchesCompleteSamplePartitions() {
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(exampleAreas(),
+				CONCEPTS, 2);
+		assertEquals(Arrays.asList("L1", "L2"), Arrays.asList(partitions.getLanguages()));
+		// the partitions keep all areas of the kept languages
+		assertEquals(2, partitions.getPartition(0).size());
+		assertEquals(2, partitions.getPartition(1).size());
+
+		List<Set<Set<Triple<String, String, String>>>> complete = IsolecticAreaProcessing
+				.isolecticAreasToCompleteSamplePartitions(exampleAreas(), new TreeSet<String>(Arrays.asList(CONCEPTS)), 2);
+		assertEquals(partitions.getPartitions(), complete);
+		assertEquals(1, IsolecticAreaProcessing
+				.isolecticAreasToCompleteSamplePartitions(exampleAreas(), new TreeSet<String>(Arrays.asList(CONCEPTS))).size());
+	}
+
+	public void testSamplePartitions() {
+		List<Set<Set<Triple<String, String, String>>>> all = IsolecticAreaProcessing
+				.isolecticAreasToSamplePartitions(exampleAreas());
+		assertEquals(IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(exampleAreas(), CONCEPTS, -1)
+				.getPartitions(), all);
+
+		List<Set<Set<Triple<String, String, String>>>> selected = IsolecticAreaProcessing
+				.isolecticAreasToSamplePartitions(exampleAreas(), Arrays.asList("L3", "L0", "L1"));
+		assertEquals(3, selected.size());
+		assertEquals(all.get(2), selected.get(0));
+		assertTrue(selected.get(1).isEmpty());
+		assertEquals(all.get(0), selected.get(2));
+	}
+
+	public void testCoverageServesAllGapThresholds() {
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(exampleAreas(),
+				CONCEPTS, -1);
+		LanguageCoverage coverage = new LanguageCoverage(partitions);
+		assertEquals(0, coverage.getNumGaps(0));
+		assertEquals(Arrays.asList("BLOW", "LIFE"), coverage.getGapConcepts(1));
+		assertEquals(3, coverage.getNumGaps(2));
+		for (int maxNumGaps = -1; maxNumGaps <= 4; maxNumGaps++) {
+			LanguagePartitions selected = partitions.select(coverage.getKeptLanguages(maxNumGaps));
+			LanguagePartitions filtered = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(exampleAreas(),
+					CONCEPTS, maxNumGaps);
+			assertEquals(Arrays.asList(filtered.getLanguages()), Arrays.asList(selected.getLanguages()));
+			assertEquals(filtered.getPartitions(), selected.getPartitions());
+		}
+	}
+
+	public void testResamplingIsReproducible() {
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(exampleAreas(),
+				CONCEPTS, -1);
+		int[] sample = partitions.resample(new SplittableRandom(42));
+		assertTrue(Arrays.equals(sample, partitions.resample(new SplittableRandom(42))));
+
+		List<Set<Set<Triple<String, String, String>>>> view = partitions.samplePartitions(sample);
+		assertEquals(sample.length, view.size());
+		for (int i = 0; i < sample.length; i++) {
+			assertSame(partitions.getPartition(sample[i]), view.get(i));
+		}
+		int[] multiplicities = partitions.multiplicities(sample);
+		assertEquals(sample.length, multiplicities[0] + multiplicities[1] + multiplicities[2]);
+	}
+
+	public void testIndexOverloadsMatchSetBasedMethods() {
+		Set<IsolecticArea> areas = exampleAreas();
+		IsolecticAreaIndex index = new IsolecticAreaIndex(areas);
+		int[] allAreas = new int[index.getNumAreas()];
+		for (int areaID = 0; areaID < allAreas.length; areaID++) {
+			allAreas[areaID] = areaID;
+		}
+		assertEquals(areas, index.getAreas(allAreas));
+		assertEquals(IsolecticAreaProcessing.countConcepts(areas), IsolecticAreaProcessing.countConcepts(index));
+		// BLOW occurs in two areas, and the counts start at 1
+		assertEquals(3, IsolecticAreaProcessing.countConcepts(index).get("BLOW").intValue());
+		assertEquals(2, index.getAreasWithConcepts(Arrays.asList("LIFE", "OTHER")).length);
+		Set<String> fromSetFilter = new TreeSet<String>();
+		Set<String> fromIndexFilter = new TreeSet<String>();
+		IsolecticAreaProcessing.filterConceptsByMinOccurrence(fromSetFilter, areas, 3);
+		IsolecticAreaProcessing.filterConceptsByMinOccurrence(fromIndexFilter, index, 3);
+		assertEquals(new TreeSet<String>(Arrays.asList("BLOW", "BREATHE", "OTHER", "SOUL")), fromIndexFilter);
+		assertEquals(fromSetFilter, fromIndexFilter);
+
+		// both keep the areas without any of the relevant concepts in the partitions
+		LanguagePartitions fromSet = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(areas, CONCEPTS, 2);
+		LanguagePartitions fromIndex = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(index, CONCEPTS, 2);
+		assertEquals(Arrays.asList(fromSet.getLanguages()), Arrays.asList(fromIndex.getLanguages()));
+		assertEquals(fromSet.getPartitions(), fromIndex.getPartitions());
+		assertEquals(2, fromIndex.getPartition(1).size());
+		for (int langID = 0; langID < fromSet.getNumLanguages(); langID++) {
+			assertTrue(Arrays.deepEquals(fromSet.getAreas(langID), fromIndex.getAreas(langID)));
+		}
+
+		// languages without any areas for the selected concepts are kept, with all their areas
+		LanguagePartitions partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(index,
+				new String[] { "LIFE" }, -1);
+		assertEquals(3, partitions.getNumLanguages());
+		assertEquals(2, partitions.getPartition(0).size());
+		assertEquals(1, partitions.getPartition(2).size());
+		assertEquals(0, partitions.getAreas(2).length);
+	}
+}
@@ -0,0 +1,85 @@
+package de.tuebingen.sfs.lextyp.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import de.tuebingen.sfs.lextyp.struct.IsolecticArea;
+import junit.framework.TestCase;
+
+public class IsolecticAreaReaderTest extends TestCase {
+
+	static final String BREATHING_AREAS = "examples/data/breathing/francois2008-isolectic-areas.tsv";
+
+	public void testLoadAllAreas() throws IOException {
+		Set<IsolecticArea> areas = IsolecticAreaReader.loadFromFile(BREATHING_AREAS);
+		assertEquals(15, areas.size());
+		for (IsolecticArea area : areas) {
+			assertFalse(area.getConcepts().isEmpty());
+			assertFalse(area.getConcepts().contains(""));
+			if (area.getLemma().equals("anri")) {
+				assertEquals("Aleut", area.getLang());
+				assertEquals(11, area.getConcepts().size());
+				assertTrue(area.getConcepts().contains("ACT OF BREATHING"));
+				assertTrue(area.getConcepts().contains("WHISPER"));
+			}
+		}
+	}
+
+	public void testConceptAndLanguageFilters() throws IOException {
+		Set<String> languages = new TreeSet<String>();
+		Set<IsolecticArea> areas = IsolecticAreaReader.loadFromFile(BREATHING_AREAS,
+				Collections.singleton("CEASE TO DO"), null, languages);
+		assertEquals(1, areas.size());
+		assertEquals("N\u00eal\u00eamwa", areas.iterator().next().getLang());
+		// languages without any relevant areas are still reported
+		assertEquals(12, languages.size());
+
+		languages.clear();
+		areas = IsolecticAreaReader.loadFromFile(BREATHING_AREAS, null, Collections.singleton("Greek"), languages);
+		assertEquals(2, areas.size());
+		assertEquals(Collections.singleton("Greek"), languages);
+	}
+
+	public void testBinaryCacheRoundTrip() throws IOException {
+		File cacheFile = File.createTempFile("isolectic-areas", ".bin");
+		cacheFile.deleteOnExit();
+		Set<IsolecticArea> areas = IsolecticAreaReader.loadFromFile(BREATHING_AREAS);
+		IsolecticAreaCache.write(areas, cacheFile.getPath());
+		assertTrue(IsolecticAreaCache.isCacheFile(cacheFile.getPath()));
+		assertFalse(IsolecticAreaCache.isCacheFile(BREATHING_AREAS));
+		assertEquals(areas, IsolecticAreaReader.loadFromFile(cacheFile.getPath()));
+
+		Set<String> languages = new TreeSet<String>();
+		Set<String> concepts = new TreeSet<String>(Arrays.asList("CEASE TO DO", "WHISPER"));
+		assertEquals(IsolecticAreaReader.loadFromFile(BREATHING_AREAS, concepts, null, null),
+				IsolecticAreaReader.loadFromFile(cacheFile.getPath(), concepts, null, languages));
+		assertEquals(12, languages.size());
+	}
+
+	public void testCacheAppliesFilterAfterSubstitutions() throws IOException {
+		File cacheFile = File.createTempFile("isolectic-areas", ".bin");
+		cacheFile.deleteOnExit();
+		IsolecticAreaCache.write(IsolecticAreaReader.loadFromFile(BREATHING_AREAS), cacheFile.getPath());
+
+		// one concept is only selected under its substituted name, the other one is
+		// substituted away from its selected name
+		Map<String, String> substitutions = new TreeMap<String, String>();
+		substitutions.put("CEASE TO DO", "STOP");
+		substitutions.put("WHISPER", "MURMUR");
+		Set<String> concepts = new TreeSet<String>(Arrays.asList("STOP", "WHISPER"));
+		Set<IsolecticArea> fromTsv = new HashSet<IsolecticArea>();
+		Set<IsolecticArea> fromCache = new HashSet<IsolecticArea>();
+		IsolecticAreaReader.streamFromFile(BREATHING_AREAS, concepts, null, substitutions, fromTsv::add);
+		IsolecticAreaReader.streamFromFile(cacheFile.getPath(), concepts, null, substitutions, fromCache::add);
+		assertEquals(1, fromTsv.size());
+		assertTrue(fromTsv.iterator().next().getConcepts().contains("STOP"));
+		assertEquals(fromTsv, fromCache);
+	}
+}
@@ -0,0 +1,100 @@
+package de.tuebingen.sfs.lextyp.struct;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import de.tuebingen.sfs.inference.AreaConnectivityCriterion;
+import de.tuebingen.sfs.inference.InitialGraphTemplate;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaGenerator;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaIndex;
+import de.tuebingen.sfs.lextyp.data.IsolecticAreaProcessing;
+import junit.framework.TestCase;
+
+public class PairCountMatrixTest extends TestCase {
+
+	private String[] varNames;
+	private List<IsolecticArea> areas;
+	private LanguagePartitions partitions;
+
+	protected void setUp() {
+		IsolecticAreaGenerator generator = IsolecticAreaGenerator.withRandomMap(25, 6, new SplittableRandom(3));
+		generator.setAreaSizes(2.5, 5);
+		generator.setGapRate(0.1);
+		generator.setNoiseRate(0.05);
+		areas = generator.generate(150, new SplittableRandom(4));
+		varNames = generator.getConcepts();
+		partitions = IsolecticAreaProcessing.isolecticAreasToLanguagePartitions(new IsolecticAreaIndex(areas), null,
+				varNames, -1);
+	}
+
+	public void testCountsMatchAreas() {
+		PairCountMatrix pairCounts = PairCountMatrix.fromLanguagePartitions(partitions);
+		InitialGraphTemplate initialGraph = InitialGraphTemplate.fromPairCounts(pairCounts);
+		// the initial graph links the pairs which are colexified in some area
+		boolean[][] colexified = new boolean[varNames.length][varNames.length];
+		List<String> concepts = Arrays.asList(varNames);
+		for (IsolecticArea area : areas) {
+			for (String concept1 : area.getConcepts()) {
+				for (String concept2 : area.getConcepts()) {
+					int x = concepts.indexOf(concept1);
+					int y = concepts.indexOf(concept2);
+					if (x != y && x != -1 && y != -1) {
+						colexified[x][y] = true;
+					}
+				}
+			}
+		}
+
+		// the counts of a bootstrap sample are the unconditional dependences
+		AreaConnectivityCriterion criterion = new AreaConnectivityCriterion(partitions, 16);
+		// without a separating set, there are no links to search (x-y is left out)
+		long[] noLinks = new long[AreaConnectivityCriterion.linkWords(0)];
+		int[] multiplicities = partitions.multiplicities(partitions.resample(new SplittableRandom(5)));
+		long[] sampleCounts = pairCounts.sumCounts(multiplicities);
+		int[] allLanguages = new int[partitions.getNumLanguages()];
+		Arrays.fill(allLanguages, 1);
+		for (int x = 0; x < varNames.length; x++) {
+			for (int y = x + 1; y < varNames.length; y++) {
+				assertEquals(colexified[x][y], initialGraph.hasLink(x, y));
+				assertEquals(criterion.dependence(x, y, new int[0], noLinks, allLanguages), pairCounts.getCount(x, y));
+				assertEquals(criterion.dependence(x, y, new int[0], noLinks, multiplicities),
+						sampleCounts[PairCountMatrix.pairIndex(x, y, varNames.length)]);
+			}
+		}
+	}
+
+	public void testSelectionAndStorage() throws IOException {
+		PairCountMatrix pairCounts = PairCountMatrix.fromLanguagePartitions(partitions);
+		int[] langIDs = { 7, 2, 40 };
+		PairCountMatrix selected = pairCounts.select(langIDs);
+		assertEquals(3, selected.getNumLanguages());
+		for (int i = 0; i < langIDs.length; i++) {
+			assertEquals(pairCounts.getLanguages()[langIDs[i]], selected.getLanguages()[i]);
+			for (int x = 0; x < varNames.length; x++) {
+				for (int y = x + 1; y < varNames.length; y++) {
+					assertEquals(pairCounts.getCount(langIDs[i], x, y), selected.getCount(i, y, x));
+				}
+			}
+		}
+
+		File file = File.createTempFile("pairs", ".bin");
+		try {
+			pairCounts.setInput(1234L, 42L, 5678L);
+			pairCounts.writeToFile(file.getPath());
+			PairCountMatrix stored = PairCountMatrix.readFromFile(file.getPath());
+			assertEquals(1234L, stored.getInputLength());
+			assertEquals(42L, stored.getInputModified());
+			assertEquals(5678L, stored.getInputChecksum());
+			assertTrue(Arrays.equals(pairCounts.getConcepts(), stored.getConcepts()));
+			assertTrue(Arrays.equals(pairCounts.getLanguages(), stored.getLanguages()));
+			assertTrue(Arrays.equals(pairCounts.langOffsets, stored.langOffsets));
+			assertTrue(Arrays.equals(pairCounts.pairs, stored.pairs));
+			assertTrue(Arrays.equals(pairCounts.counts, stored.counts));
+		} finally {
+			file.delete();
+		}
+	}
+}